@@ -40,11 +40,15 @@ import me.glaremasters.guilds.configuration.sections.HooksSettings;
 import me.glaremasters.guilds.configuration.sections.PluginSettings;
 import me.glaremasters.guilds.cooldowns.CooldownHandler;
 import me.glaremasters.guilds.database.DatabaseProvider;
+import me.glaremasters.guilds.database.SavePipeline;
 import me.glaremasters.guilds.database.cooldowns.CooldownsProvider;
+import me.glaremasters.guilds.database.journal.MutationJournal;
 import me.glaremasters.guilds.database.providers.JsonProvider;
+import me.glaremasters.guilds.database.providers.SQLiteProvider;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildCode;
 import me.glaremasters.guilds.guild.GuildHandler;
+import me.glaremasters.guilds.guild.GuildMember;
 import me.glaremasters.guilds.guild.GuildRole;
 import me.glaremasters.guilds.guis.GUIHandler;
 import me.glaremasters.guilds.listeners.ClaimSignListener;
@@ -55,7 +59,10 @@ import me.glaremasters.guilds.listeners.TicketListener;
 import me.glaremasters.guilds.listeners.VaultBlacklistListener;
 import me.glaremasters.guilds.listeners.WorldGuardListener;
 import me.glaremasters.guilds.messages.Messages;
+import me.glaremasters.guilds.names.NameCache;
 import me.glaremasters.guilds.placeholders.PlaceholderAPI;
+import me.glaremasters.guilds.skulls.MinetoolsTextureSource;
+import me.glaremasters.guilds.skulls.SkullService;
 import me.glaremasters.guilds.updater.UpdateChecker;
 import me.glaremasters.guilds.utils.Constants;
 import me.glaremasters.guilds.utils.StringUtils;
@@ -67,7 +74,6 @@ import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.configuration.InvalidConfigurationException;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.reflections.Reflections;
@@ -103,6 +109,10 @@ public final class Guilds extends JavaPlugin {
     private static TaskChainFactory taskChainFactory;
     private DatabaseProvider database;
     private CooldownsProvider cooldownsProvider;
+    private SavePipeline savePipeline;
+    private MutationJournal journal;
+    private NameCache nameCache;
+    private SkullService skullService;
     private SettingsHandler settingsHandler;
     private PaperCommandManager commandManager;
     private ActionHandler actionHandler;
@@ -115,10 +125,33 @@ public final class Guilds extends JavaPlugin {
     @Override
     public void onDisable() {
         if (checkVault()) {
+            if (savePipeline != null) savePipeline.shutdown();
+            // Every step gets its own try so one failing save doesn't skip the rest or leave the database open
             try {
                 guildHandler.saveData();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            try {
                 cooldownHandler.saveCooldowns();
-            } catch (IOException e) {
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            try {
+                nameCache.save();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            try {
+                skullService.shutdown();
+                skullService.save();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            if (journal != null) journal.close();
+            try {
+                database.close();
+            } catch (IOException | RuntimeException e) {
                 e.printStackTrace();
             }
             guildHandler.chatLogout();
@@ -138,6 +171,40 @@ public final class Guilds extends JavaPlugin {
         }
     }
 
+    /**
+     * Copy the guilds stored as json into a fresh SQLite database, so switching the storage type doesn't start over empty
+     * @param sqlite the SQLite database
+     * @throws IOException if the guilds could not be copied
+     */
+    private void importJsonGuilds(SQLiteProvider sqlite) throws IOException {
+        File[] json = new File(getDataFolder(), "data").listFiles(f -> f.isFile() && f.getName().endsWith(".json"));
+        if (json == null || json.length == 0 || !sqlite.isEmpty()) return;
+
+        List<Guild> guilds = new JsonProvider(getDataFolder(), getLogger()).loadGuilds();
+        sqlite.saveGuilds(guilds);
+        warn("Imported " + guilds.size() + " guild(s) from json storage into SQLite. The json files are left in place as a backup.");
+    }
+
+    /**
+     * Create the database provider for the storage type set in the config
+     * @return the database provider
+     * @throws IOException if the database could not be opened
+     */
+    private DatabaseProvider createDatabaseProvider() throws IOException {
+        String type = settingsHandler.getSettingsManager().getProperty(PluginSettings.STORAGE_TYPE);
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "sqlite":
+                SQLiteProvider sqlite = new SQLiteProvider(getDataFolder());
+                importJsonGuilds(sqlite);
+                return sqlite;
+            case "json":
+                return new JsonProvider(getDataFolder(), getLogger());
+            default:
+                warn("Unknown storage type " + type + ", falling back to json.");
+                return new JsonProvider(getDataFolder(), getLogger());
+        }
+    }
+
     /**
      * Implement Vault's Economy API
      */
@@ -295,15 +362,26 @@ public final class Guilds extends JavaPlugin {
         // Load data here.
         try {
             info("Loading Data..");
-            // This will soon be changed to an automatic storage chooser from the config
-            // Load the json provider
-            database = new JsonProvider(getDataFolder());
+            // Load the storage provider chosen in the config
+            database = createDatabaseProvider();
             // Load the cooldown folder
             cooldownsProvider = new CooldownsProvider(getDataFolder());
             // Load the cooldown objects
             cooldownHandler = new CooldownHandler(cooldownsProvider);
+            // Load the journal of changes made since the last save
+            SettingsManager settings = settingsHandler.getSettingsManager();
+            if (settings.getProperty(PluginSettings.JOURNAL_ENABLED)) {
+                journal = new MutationJournal(new File(getDataFolder(), "journal"), getLogger(),
+                        settings.getProperty(PluginSettings.JOURNAL_SYNC_INTERVAL), settings.getProperty(PluginSettings.JOURNAL_COMPACT_SIZE) * 1024L);
+            }
             // Load guildhandler with provider
-            guildHandler = new GuildHandler(database, getCommandManager(), getPermissions(), getConfig(), settingsHandler.getSettingsManager());
+            // Load the names of players seen before
+            nameCache = new NameCache(new File(getDataFolder(), "names.dat"), getLogger());
+            nameCache.load();
+            // Load the skull textures looked up before
+            skullService = new SkullService(new File(getDataFolder(), "skulls.dat"), getLogger(), new MinetoolsTextureSource(5000));
+            skullService.load();
+            guildHandler = new GuildHandler(database, getCommandManager(), getPermissions(), getConfig(), settingsHandler.getSettingsManager(), getLogger(), nameCache, journal);
             info("Loaded data!");
         } catch (IOException e) {
             severe("An error occurred loading data! Stopping plugin..");
@@ -391,7 +469,7 @@ public final class Guilds extends JavaPlugin {
         }
 
         // Load all the listeners
-        Stream.of(new EntityListener(guildHandler, settingsHandler.getSettingsManager()), new PlayerListener(guildHandler, settingsHandler.getSettingsManager(), this, permissions), new TicketListener(this, guildHandler, settingsHandler.getSettingsManager()), new VaultBlacklistListener(this, guildHandler, settingsHandler.getSettingsManager())).forEach(l -> Bukkit.getPluginManager().registerEvents(l, this));
+        Stream.of(new EntityListener(guildHandler, settingsHandler), new PlayerListener(guildHandler, settingsHandler.getSettingsManager(), this, permissions), new TicketListener(this, guildHandler, settingsHandler.getSettingsManager()), new VaultBlacklistListener(this, guildHandler, settingsHandler)).forEach(l -> Bukkit.getPluginManager().registerEvents(l, this));
         // Load the optional listeners
         optionalListeners();
 
@@ -404,14 +482,15 @@ public final class Guilds extends JavaPlugin {
         cooldownHandler.createCooldowns();
 
         info("Ready to go! That only took " + (System.currentTimeMillis() - startingTime) + "ms");
-        getServer().getScheduler().scheduleAsyncRepeatingTask(this, () -> {
-            try {
-                guildHandler.saveData();
-                cooldownHandler.saveCooldowns();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }, 20 * 60, (20 * 60) * settingsHandler.getSettingsManager().getProperty(PluginSettings.SAVE_INTERVAL));
+        // Snapshot on the main thread, serialize and write on the pipeline's own thread
+        savePipeline = new SavePipeline(this, guildHandler, cooldownHandler);
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, savePipeline::requestSave, 20 * 60, (20 * 60) * settingsHandler.getSettingsManager().getProperty(PluginSettings.SAVE_INTERVAL));
+        // Save early when the journal grows large so replaying it on startup stays quick
+        if (journal != null) {
+            getServer().getScheduler().scheduleSyncRepeatingTask(this, () -> {
+                if (journal.needsCompaction()) savePipeline.requestSave();
+            }, 20 * 30, 20 * 30);
+        }
 
     }
 
@@ -439,7 +518,7 @@ public final class Guilds extends JavaPlugin {
         manager.getCommandCompletions().registerCompletion("members", c -> {
             Guild guild = guildHandler.getGuild(c.getPlayer());
             if (guild == null) return null;
-            return guild.getMembers().stream().map(member -> Bukkit.getOfflinePlayer(member.getUuid()).getName()).collect(Collectors.toList());
+            return nameCache.getNames(guild.getMembers().stream().map(GuildMember::getUuid).collect(Collectors.toList()));
         });
 
         manager.getCommandCompletions().registerCompletion("online", c -> Bukkit.getOnlinePlayers().stream().map(member -> Bukkit.getPlayer(member.getUniqueId()).getName()).collect(Collectors.toList()));
@@ -475,9 +554,7 @@ public final class Guilds extends JavaPlugin {
             Guild guild = guildHandler.getGuild(c.getPlayer());
             if (guild == null) return null;
             if (guild.getVaults() == null) return null;
-            List<Inventory> list = guildHandler.getCachedVaults().get(guild);
-            if (list == null) return null;
-            return IntStream.rangeClosed(1, list.size()).mapToObj(Objects::toString).collect(Collectors.toList());
+            return IntStream.rangeClosed(1, guildHandler.getVaultCount(guild)).mapToObj(Objects::toString).collect(Collectors.toList());
         });
 
         manager.getCommandCompletions().registerCompletion("languages", c -> loadedLanguages.stream().sorted().collect(Collectors.toList()));
@@ -554,10 +631,13 @@ public final class Guilds extends JavaPlugin {
     private void registerDependencies(PaperCommandManager commandManager) {
         commandManager.registerDependency(GuildHandler.class, guildHandler);
         commandManager.registerDependency(SettingsManager.class, settingsHandler.getSettingsManager());
+        commandManager.registerDependency(SettingsHandler.class, settingsHandler);
         commandManager.registerDependency(ActionHandler.class, actionHandler);
         commandManager.registerDependency(Economy.class, economy);
         commandManager.registerDependency(Permission.class, permissions);
         commandManager.registerDependency(CooldownHandler.class, cooldownHandler);
+        commandManager.registerDependency(NameCache.class, nameCache);
+        commandManager.registerDependency(SkullService.class, skullService);
     }
 
     /**
@@ -28,6 +28,7 @@ import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildCode;
 import me.glaremasters.guilds.guild.GuildHandler;
+import me.glaremasters.guilds.guild.GuildOrder;
 import me.glaremasters.guilds.guild.GuildRole;
 import me.glaremasters.guilds.guild.GuildTier;
 import org.bukkit.OfflinePlayer;
@@ -35,6 +36,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -89,6 +91,28 @@ public class GuildsAPI {
         return guildHandler;
     }
 
+    /**
+     * Get the guild at a place on a leaderboard
+     * @param order the leaderboard to check
+     * @param rank the place on the leaderboard, starting at 1
+     * @return the guild, null if there are fewer guilds than that or the order isn't a leaderboard
+     */
+    public Guild getTopGuild(@NotNull GuildOrder order, int rank) {
+        if (!order.isRanked()) return null;
+        return guildHandler.getListIndex().getRanked(order, rank);
+    }
+
+    /**
+     * Get the best guilds on a leaderboard
+     * @param order the leaderboard to check
+     * @param amount how many guilds to get
+     * @return the guilds, best first, empty if the order isn't a leaderboard
+     */
+    public List<Guild> getTopGuilds(@NotNull GuildOrder order, int amount) {
+        if (!order.isRanked() || amount <= 0) return Collections.emptyList();
+        return guildHandler.getListIndex().getPage(order, 0, amount);
+    }
+
     /**
      * Get the role of a player
      * @param player role
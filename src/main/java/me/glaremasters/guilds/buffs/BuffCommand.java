@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.glaremasters.guilds.buffs;
+
+import java.util.regex.Pattern;
+
+/**
+ * A buff command split around its {player} placeholder once, so running it is just a join
+ */
+public final class BuffCommand {
+
+    private static final Pattern PLAYER = Pattern.compile(Pattern.quote("{player}"));
+
+    private final String[] parts;
+
+    private BuffCommand(String[] parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Split a command from the config
+     * @param command the command
+     * @return the split command
+     */
+    public static BuffCommand parse(String command) {
+        return new BuffCommand(PLAYER.split(command, -1));
+    }
+
+    /**
+     * Get the command for a player
+     * @param player the name of the player
+     * @return the command to run
+     */
+    public String fill(String player) {
+        return parts.length == 1 ? parts[0] : String.join(player, parts);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.glaremasters.guilds.buffs;
+
+import lombok.Getter;
+import me.glaremasters.guilds.guis.ItemTemplate;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Immutable list of the configured buffs, read from every entry under the buffs section of the config.
+ * A new instance is built whenever the config is loaded and swapped in as a whole.
+ */
+public final class BuffRegistry {
+
+    private static final String BUFF_PATH = "guis.guild-buffs.buffs";
+    // A chest GUI has at most six rows of nine
+    private static final int MAX_SLOTS = 54;
+
+    @Getter private final List<GuildBuff> buffs;
+    // Enough rows to fit the highest slot in use
+    @Getter private final int rows;
+
+    private BuffRegistry(List<GuildBuff> buffs) {
+        this.buffs = Collections.unmodifiableList(buffs);
+        this.rows = buffs.stream().mapToInt(GuildBuff::getSlot).max().orElse(0) / 9 + 1;
+    }
+
+    /**
+     * Build the registry from the buffs section of the config, skipping buffs that are hidden, invalid or share a slot
+     * @param config the config to read
+     * @param logger logger to warn about invalid buffs
+     * @return the registry
+     */
+    public static BuffRegistry load(FileConfiguration config, Logger logger) {
+        List<GuildBuff> buffs = new ArrayList<>();
+        Set<Integer> slots = new HashSet<>();
+        ConfigurationSection section = config.getConfigurationSection(BUFF_PATH);
+        if (section == null) return new BuffRegistry(buffs);
+
+        for (String key : section.getKeys(false)) {
+            if (!section.getBoolean(key + ".display", true)) continue;
+
+            PotionEffectType type = PotionEffectType.getByName(section.getString(key + ".type", ""));
+            if (type == null) {
+                logger.warning("Skipping buff " + key + ", unknown potion type " + section.getString(key + ".type"));
+                continue;
+            }
+            Material icon = Material.matchMaterial(section.getString(key + ".icon", ""));
+            if (icon == null) {
+                logger.warning("Skipping buff " + key + ", unknown icon " + section.getString(key + ".icon"));
+                continue;
+            }
+
+            int slot = section.getInt(key + ".slot");
+            if (slot < 0 || slot >= MAX_SLOTS) {
+                logger.warning("Skipping buff " + key + ", slot " + slot + " is outside of the GUI (0 to " + (MAX_SLOTS - 1) + ")");
+                continue;
+            }
+            if (!slots.add(slot)) {
+                logger.warning("Skipping buff " + key + ", slot " + slot + " is already used by another buff");
+                continue;
+            }
+
+            buffs.add(GuildBuff.builder()
+                    .key(key)
+                    .effect(new PotionEffect(type, section.getInt(key + ".time") * 20, section.getInt(key + ".amplifier")))
+                    .price(section.getDouble(key + ".price"))
+                    .icon(ItemTemplate.of(new ItemStack(icon), section.getString(key + ".name", key),
+                            section.getStringList(key + ".description")).build())
+                    .slot(slot)
+                    .clickerCommands(commands(section, key + ".commands.clicker"))
+                    .guildCommands(commands(section, key + ".commands.guild"))
+                    .build());
+        }
+
+        return new BuffRegistry(buffs);
+    }
+
+    /**
+     * Read the commands of a buff, leaving out blank ones
+     * @param section the buffs section
+     * @param path the path of the commands
+     * @return the commands, empty if they aren't enabled
+     */
+    private static List<BuffCommand> commands(ConfigurationSection section, String path) {
+        if (!section.getBoolean(path + ".enabled")) return Collections.emptyList();
+        List<BuffCommand> commands = new ArrayList<>();
+        for (String command : section.getStringList(path + ".commands")) {
+            if (!command.trim().isEmpty()) commands.add(BuffCommand.parse(command));
+        }
+        return Collections.unmodifiableList(commands);
+    }
+
+}
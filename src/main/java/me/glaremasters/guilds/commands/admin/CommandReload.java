@@ -24,13 +24,15 @@
 
 package me.glaremasters.guilds.commands.admin;
 
-import ch.jalu.configme.SettingsManager;
 import co.aikar.commands.BaseCommand;
 import co.aikar.commands.annotation.CommandAlias;
 import co.aikar.commands.annotation.CommandPermission;
 import co.aikar.commands.annotation.Dependency;
 import co.aikar.commands.annotation.Description;
 import co.aikar.commands.annotation.Subcommand;
+import me.glaremasters.guilds.Guilds;
+import me.glaremasters.guilds.configuration.SettingsHandler;
+import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.messages.Messages;
 import me.glaremasters.guilds.utils.Constants;
 
@@ -42,7 +44,9 @@ import me.glaremasters.guilds.utils.Constants;
 @CommandAlias(Constants.ROOT_ALIAS)
 public class CommandReload extends BaseCommand {
 
-    @Dependency private SettingsManager settingsManager;
+    @Dependency private Guilds guilds;
+    @Dependency private GuildHandler guildHandler;
+    @Dependency private SettingsHandler settingsHandler;
 
     /**
      * Reloads the config
@@ -51,7 +55,10 @@ public class CommandReload extends BaseCommand {
     @Description("{@@descriptions.reload}")
     @CommandPermission(Constants.ADMIN_PERM)
     public void execute() {
-        settingsManager.reload();
+        settingsHandler.reload();
+        guilds.reloadConfig();
+        guildHandler.reloadRegistries(guilds.getConfig());
+        guilds.getGuiHandler().reload();
         getCurrentCommandIssuer().sendInfo(Messages.RELOAD__RELOADED);
     }
 }
\ No newline at end of file
@@ -90,7 +90,7 @@ public class CommandAdminRemove extends BaseCommand {
                 ClaimUtils.deleteWithGuild(player, guild, settingsManager);
 
                 guild.sendMessage(getCurrentCommandManager(), Messages.LEAVE__GUILDMASTER_LEFT,
-                        "{player}", Bukkit.getOfflinePlayer(guild.getGuildMaster().getUuid()).getName());
+                        "{player}", guildHandler.getNameCache().getName(guild.getGuildMaster().getUuid()));
 
                 guildHandler.removeGuild(guild);
                 getCurrentCommandIssuer().sendInfo(Messages.ADMIN__DELETE_SUCCESS,
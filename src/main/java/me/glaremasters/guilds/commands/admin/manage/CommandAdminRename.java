@@ -70,6 +70,11 @@ public class CommandAdminRename extends BaseCommand {
         if (guild == null)
             ACFUtil.sneaky(new ExpectationNotMet(Messages.ERROR__GUILD_NO_EXIST));
 
+        // A guild may recolor or recase its own name
+        Guild other = guildHandler.getGuild(newName);
+        if (other != null && other != guild)
+            ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__GUILD_NAME_TAKEN));
+
         guild.setName(ACFBukkitUtil.color(newName));
         getCurrentCommandIssuer().sendInfo(Messages.RENAME__SUCCESSFUL,
                 "{name}", newName);
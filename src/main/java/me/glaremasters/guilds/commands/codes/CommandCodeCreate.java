@@ -38,6 +38,7 @@ import me.glaremasters.guilds.configuration.sections.CodeSettings;
 import me.glaremasters.guilds.exceptions.ExpectationNotMet;
 import me.glaremasters.guilds.exceptions.InvalidPermissionException;
 import me.glaremasters.guilds.guild.Guild;
+import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.guild.GuildRole;
 import me.glaremasters.guilds.messages.Messages;
 import me.glaremasters.guilds.utils.Constants;
@@ -53,6 +54,7 @@ import org.bukkit.entity.Player;
 public class CommandCodeCreate extends BaseCommand {
 
     @Dependency private SettingsManager settingsManager;
+    @Dependency private GuildHandler guildHandler;
 
     /**
      * Create an invite code for your guild
@@ -71,7 +73,10 @@ public class CommandCodeCreate extends BaseCommand {
         if (guild.getActiveCheck(settingsManager.getProperty(CodeSettings.ACTIVE_CODE_AMOUNT)))
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CODES__MAX));
 
-        String code = RandomStringUtils.randomAlphabetic(settingsManager.getProperty(CodeSettings.CODE_LENGTH));
+        String code;
+        do {
+            code = RandomStringUtils.randomAlphabetic(settingsManager.getProperty(CodeSettings.CODE_LENGTH));
+        } while (guildHandler.isCodeTaken(code));
 
         guild.addCode(code, uses, player);
 
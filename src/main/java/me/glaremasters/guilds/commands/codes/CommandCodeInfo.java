@@ -29,6 +29,7 @@ import co.aikar.commands.BaseCommand;
 import co.aikar.commands.annotation.CommandAlias;
 import co.aikar.commands.annotation.CommandCompletion;
 import co.aikar.commands.annotation.CommandPermission;
+import co.aikar.commands.annotation.Dependency;
 import co.aikar.commands.annotation.Description;
 import co.aikar.commands.annotation.Single;
 import co.aikar.commands.annotation.Subcommand;
@@ -40,8 +41,8 @@ import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildCode;
 import me.glaremasters.guilds.guild.GuildRole;
 import me.glaremasters.guilds.messages.Messages;
+import me.glaremasters.guilds.names.NameCache;
 import me.glaremasters.guilds.utils.Constants;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 /**
@@ -52,6 +53,8 @@ import org.bukkit.entity.Player;
 @CommandAlias(Constants.ROOT_ALIAS)
 public class CommandCodeInfo extends BaseCommand {
 
+    @Dependency private NameCache nameCache;
+
     /**
      * THis command will display info about a guild's codes
      * @param player the player running the command
@@ -77,7 +80,7 @@ public class CommandCodeInfo extends BaseCommand {
         getCurrentCommandIssuer().sendInfo(Messages.CODES__INFO,
                 "{code}", gc.getId(),
                 "{amount}", String.valueOf(gc.getUses()),
-                "{creator}", Bukkit.getOfflinePlayer(gc.getCreator()).getName(),
+                "{creator}", nameCache.getName(gc.getCreator()),
                 "{redeemers}", guild.getRedeemers(code));
 
     }
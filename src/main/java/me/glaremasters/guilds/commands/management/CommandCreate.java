@@ -39,6 +39,7 @@ import me.glaremasters.guilds.Guilds;
 import me.glaremasters.guilds.actions.ActionHandler;
 import me.glaremasters.guilds.actions.ConfirmAction;
 import me.glaremasters.guilds.api.events.GuildCreateEvent;
+import me.glaremasters.guilds.configuration.SettingsHandler;
 import me.glaremasters.guilds.configuration.sections.CostSettings;
 import me.glaremasters.guilds.configuration.sections.GuildListSettings;
 import me.glaremasters.guilds.configuration.sections.GuildSettings;
@@ -50,6 +51,7 @@ import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.guild.GuildMember;
 import me.glaremasters.guilds.guild.GuildSkull;
 import me.glaremasters.guilds.messages.Messages;
+import me.glaremasters.guilds.skulls.SkullService;
 import me.glaremasters.guilds.utils.Constants;
 import me.glaremasters.guilds.utils.EconomyUtils;
 import net.milkbowl.vault.economy.Economy;
@@ -73,10 +75,12 @@ public class CommandCreate extends BaseCommand {
     @Dependency private Guilds guilds;
     @Dependency private GuildHandler guildHandler;
     @Dependency private SettingsManager settingsManager;
+    @Dependency private SettingsHandler settingsHandler;
     @Dependency private ActionHandler actionHandler;
     @Dependency private Economy economy;
     @Dependency private Permission permission;
     @Dependency private CooldownHandler cooldownHandler;
+    @Dependency private SkullService skullService;
 
     /**
      * Create a guild
@@ -103,20 +107,20 @@ public class CommandCreate extends BaseCommand {
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__GUILD_NAME_TAKEN));
 
         if (settingsManager.getProperty(GuildSettings.BLACKLIST_TOGGLE)) {
-            if (guildHandler.blacklistCheck(name, settingsManager))
+            if (guildHandler.blacklistCheck(name, settingsHandler.getCompiled()))
                 ACFUtil.sneaky(new ExpectationNotMet(Messages.ERROR__BLACKLIST));
         }
 
-        if (!guildHandler.nameCheck(name, settingsManager))
+        if (!guildHandler.nameCheck(name, settingsHandler.getCompiled()))
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__REQUIREMENTS));
 
         if (!settingsManager.getProperty(GuildSettings.DISABLE_PREFIX)) {
             if (prefix != null) {
-                if (!guildHandler.prefixCheck(prefix, settingsManager)) {
+                if (!guildHandler.prefixCheck(prefix, settingsHandler.getCompiled())) {
                     ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__REQUIREMENTS));
                 }
             } else {
-                if (!guildHandler.prefixCheck(name, settingsManager)) {
+                if (!guildHandler.prefixCheck(name, settingsHandler.getCompiled())) {
                     ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__NAME_TOO_LONG));
                 }
             }
@@ -177,13 +181,8 @@ public class CommandCreate extends BaseCommand {
 
                 actionHandler.removeAction(player);
 
-                Guilds.newChain().async(() -> {
-                    try {
-                        guild.setGuildSkull(new GuildSkull(player));
-                    } catch (Exception ex) {
-                        guild.setGuildSkull(new GuildSkull(settingsManager.getProperty(GuildListSettings.GUILD_LIST_HEAD_DEFAULT_URL)));
-                    }
-                }).execute();
+                skullService.resolve(player.getUniqueId()).whenComplete((texture, error) -> Guilds.newChain().sync(() ->
+                        guild.setGuildSkull(new GuildSkull(texture != null ? texture : settingsManager.getProperty(GuildListSettings.GUILD_LIST_HEAD_DEFAULT_URL)))).execute());
             }
 
             @Override
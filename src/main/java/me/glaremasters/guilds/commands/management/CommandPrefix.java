@@ -33,6 +33,7 @@ import co.aikar.commands.annotation.Dependency;
 import co.aikar.commands.annotation.Description;
 import co.aikar.commands.annotation.Subcommand;
 import co.aikar.commands.annotation.Syntax;
+import me.glaremasters.guilds.configuration.SettingsHandler;
 import me.glaremasters.guilds.configuration.sections.GuildSettings;
 import me.glaremasters.guilds.exceptions.ExpectationNotMet;
 import me.glaremasters.guilds.exceptions.InvalidPermissionException;
@@ -54,6 +55,7 @@ public class CommandPrefix extends BaseCommand {
 
     @Dependency private GuildHandler guildHandler;
     @Dependency private SettingsManager settingsManager;
+    @Dependency private SettingsHandler settingsHandler;
 
     /**
      * Change guild prefix
@@ -73,7 +75,7 @@ public class CommandPrefix extends BaseCommand {
         if (settingsManager.getProperty(GuildSettings.DISABLE_PREFIX))
             ACFUtil.sneaky(new ExpectationNotMet(Messages.PREFIX__DISABLED));
 
-        if (!guildHandler.prefixCheck(prefix, settingsManager))
+        if (!guildHandler.prefixCheck(prefix, settingsHandler.getCompiled()))
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__REQUIREMENTS));
 
         getCurrentCommandIssuer().sendInfo(Messages.PREFIX__SUCCESSFUL,
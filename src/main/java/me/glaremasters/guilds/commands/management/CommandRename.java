@@ -33,6 +33,7 @@ import co.aikar.commands.annotation.Dependency;
 import co.aikar.commands.annotation.Description;
 import co.aikar.commands.annotation.Subcommand;
 import co.aikar.commands.annotation.Syntax;
+import me.glaremasters.guilds.configuration.SettingsHandler;
 import me.glaremasters.guilds.configuration.sections.GuildSettings;
 import me.glaremasters.guilds.exceptions.ExpectationNotMet;
 import me.glaremasters.guilds.exceptions.InvalidPermissionException;
@@ -56,6 +57,7 @@ public class CommandRename extends BaseCommand {
 
     @Dependency private GuildHandler guildHandler;
     @Dependency private SettingsManager settingsManager;
+    @Dependency private SettingsHandler settingsHandler;
 
     /**
      * Rename a guild
@@ -72,14 +74,16 @@ public class CommandRename extends BaseCommand {
         if (!role.isChangeName())
             ACFUtil.sneaky(new InvalidPermissionException());
 
-        if (guildHandler.checkGuildNames(name))
+        // A guild may recolor or recase its own name
+        Guild other = guildHandler.getGuild(name);
+        if (other != null && other != guild)
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__GUILD_NAME_TAKEN));
 
-        if (!guildHandler.nameCheck(name, settingsManager))
+        if (!guildHandler.nameCheck(name, settingsHandler.getCompiled()))
             ACFUtil.sneaky(new ExpectationNotMet(Messages.CREATE__REQUIREMENTS));
 
         if (settingsManager.getProperty(GuildSettings.BLACKLIST_TOGGLE)) {
-            if (guildHandler.blacklistCheck(name, settingsManager))
+            if (guildHandler.blacklistCheck(name, settingsHandler.getCompiled()))
                 ACFUtil.sneaky(new ExpectationNotMet(Messages.ERROR__BLACKLIST));
         }
 
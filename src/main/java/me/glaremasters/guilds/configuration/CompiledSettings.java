@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.configuration;
+
+import ch.jalu.configme.SettingsManager;
+import co.aikar.commands.ACFBukkitUtil;
+import lombok.Getter;
+import me.glaremasters.guilds.configuration.sections.GuildSettings;
+import me.glaremasters.guilds.configuration.sections.GuildVaultSettings;
+import org.bukkit.Material;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable copy of the settings read by listeners on every event, parsed once when the config is loaded.
+ * Never changed after being built, a reload builds a new one and swaps it in.
+ */
+@Getter
+public final class CompiledSettings {
+
+    private final boolean respectWgPvpFlag;
+    private final boolean guildDamage;
+    private final boolean allyDamage;
+
+    private final Pattern namePattern;
+    private final Pattern prefixPattern;
+    // Lower case, names are checked against them ignoring case
+    private final List<String> blacklistWords;
+
+    // Already colored, only the placeholders are left to replace
+    private final String guildChatFormat;
+    private final String spyChatFormat;
+    private final String allyChatFormat;
+
+    private final Set<Material> vaultBlacklistMaterials;
+    // Lower case, display names are checked against them ignoring case
+    private final Set<String> vaultBlacklistNames;
+    private final List<String> vaultBlacklistLores;
+
+    private CompiledSettings(SettingsManager settingsManager) {
+        respectWgPvpFlag = settingsManager.getProperty(GuildSettings.RESPECT_WG_PVP_FLAG);
+        guildDamage = settingsManager.getProperty(GuildSettings.GUILD_DAMAGE);
+        allyDamage = settingsManager.getProperty(GuildSettings.ALLY_DAMAGE);
+
+        namePattern = Pattern.compile(settingsManager.getProperty(GuildSettings.NAME_REQUIREMENTS));
+        prefixPattern = Pattern.compile(settingsManager.getProperty(GuildSettings.PREFIX_REQUIREMENTS));
+        blacklistWords = Collections.unmodifiableList(settingsManager.getProperty(GuildSettings.BLACKLIST_WORDS).stream()
+                .map(s -> s.toLowerCase(Locale.ROOT)).collect(Collectors.toList()));
+
+        guildChatFormat = ACFBukkitUtil.color(settingsManager.getProperty(GuildSettings.GUILD_CHAT_FORMAT));
+        spyChatFormat = ACFBukkitUtil.color(settingsManager.getProperty(GuildSettings.SPY_CHAT_FORMAT));
+        allyChatFormat = ACFBukkitUtil.color(settingsManager.getProperty(GuildSettings.ALLY_CHAT_FORMAT));
+
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (String name : settingsManager.getProperty(GuildVaultSettings.BLACKLIST_MATERIALS)) {
+            Material material = Material.getMaterial(name.toUpperCase(Locale.ROOT));
+            if (material != null) materials.add(material);
+        }
+        vaultBlacklistMaterials = Collections.unmodifiableSet(materials);
+        vaultBlacklistNames = Collections.unmodifiableSet(settingsManager.getProperty(GuildVaultSettings.BLACKLIST_NAMES).stream()
+                .map(s -> s.toLowerCase(Locale.ROOT)).collect(Collectors.toCollection(HashSet::new)));
+        vaultBlacklistLores = Collections.unmodifiableList(settingsManager.getProperty(GuildVaultSettings.BLACKLIST_LORES).stream()
+                .filter(s -> !s.isEmpty()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Read and parse the settings
+     * @param settingsManager the settings manager to read from
+     * @return the compiled settings
+     */
+    public static CompiledSettings compile(SettingsManager settingsManager) {
+        return new CompiledSettings(settingsManager);
+    }
+}
@@ -41,6 +41,8 @@ public class SettingsHandler {
 
     private Guilds guilds;
     @Getter private SettingsManager settingsManager;
+    // Swapped as a whole on reload so async readers never see half of an old config
+    @Getter private volatile CompiledSettings compiled;
 
     public SettingsHandler(Guilds guilds) {
 
@@ -51,6 +53,15 @@ public class SettingsHandler {
                 .migrationService(new GuildsMigrationService())
                 .configurationData(GuildConfigurationBuilder.buildConfigurationData())
                 .create();
+        compiled = CompiledSettings.compile(settingsManager);
+    }
+
+    /**
+     * Reload the config from disk and compile the settings again
+     */
+    public void reload() {
+        settingsManager.reload();
+        compiled = CompiledSettings.compile(settingsManager);
     }
 
 }
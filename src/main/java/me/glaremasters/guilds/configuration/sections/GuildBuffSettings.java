@@ -40,6 +40,7 @@ import static ch.jalu.configme.properties.PropertyInitializer.newProperty;
  */
 public class GuildBuffSettings implements SettingsHolder {
 
+    // Only the default buffs, every entry under this path is loaded by BuffRegistry so more can be added in the config
     private static final String BUFF_PATH = "guis.guild-buffs.buffs.";
 
     @Comment("What should the name of the inventory be?")
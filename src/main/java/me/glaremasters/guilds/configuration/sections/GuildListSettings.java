@@ -54,11 +54,13 @@ public class GuildListSettings implements SettingsHolder {
     @Comment({"How should the menu be sorted?",
             "LOADED: In the order that the Guilds were loaded on startup",
             "TIER: In order from highest tier to lowest tier",
-            "MEMBERS: In order from most members to least members"})
+            "MEMBERS: In order from most members to least members",
+            "BALANCE: In order from highest bank balance to lowest",
+            "ONLINE: In order from most online members to least online members"})
     public static final Property<String> GUILD_LIST_SORT =
             newProperty(LIST_PATH + "sort", "LOADED");
 
-/*    @Comment("What item should players click to go to the next page?")
+    @Comment("What item should players click to go to the next page?")
     public static final Property<String> GUILD_LIST_NEXT_PAGE_ITEM =
             newProperty(LIST_PATH + "next-page-item", "EMPTY_MAP");
 
@@ -80,7 +82,7 @@ public class GuildListSettings implements SettingsHolder {
 
     @Comment("What should the name of this item be?")
     public static final Property<String> GUILD_LIST_PAGE_NUMBER_ITEM_NAME =
-            newProperty(LIST_PATH + "page-number-item-name", "&fPage: {page}");*/
+            newProperty(LIST_PATH + "page-number-item-name", "&fPage: {page}");
 
     @Comment("What should be the default texture url for textures that fail to load in? Refer to the Guild Manage settings to see how to change the texture!")
     public static final Property<String> GUILD_LIST_HEAD_DEFAULT_URL =
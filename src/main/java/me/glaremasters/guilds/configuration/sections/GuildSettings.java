@@ -74,6 +74,10 @@ public class GuildSettings implements SettingsHolder {
     public static final Property<String> SPY_CHAT_FORMAT =
             newProperty("guild.format.spy", "&7&l[Guild Spy]&r &b[{guild}&b]&r &b[{role}&b]&r &b {player}: {message}");
 
+    @Comment("The style used when a message is sent in ally chat, seen by the guild and all of its allies.")
+    public static final Property<String> ALLY_CHAT_FORMAT =
+            newProperty("guild.format.ally-chat", "&7&l[Ally Chat]&r &b[{guild}&b]&r &b[{role}&b]&r &b {player}: {message}");
+
     @Comment("The left bracket in the placeholder")
     public static final Property<String> FORMAT_BRACKET_LEFT =
             newProperty("guild.format.placeholder-design.left-bracket", "[");
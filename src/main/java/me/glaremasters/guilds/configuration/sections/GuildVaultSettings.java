@@ -60,6 +60,16 @@ public class GuildVaultSettings implements SettingsHolder {
     public static final Property<List<String>> BLACKLIST_LORES =
             newListProperty("guis.vault.blacklist.lores", "");
 
+    @Comment({"How many opened vaults should be kept in memory across all guilds?",
+    "Vaults are only loaded when opened, once more than this are loaded the least recently used ones nobody is looking at are unloaded again."})
+    public static final Property<Integer> VAULT_CACHE_SIZE =
+            newProperty("guis.vault.cache-size", 200);
+
+    @Comment({"Should vaults be compressed when saved?",
+    "This makes guild data a lot smaller at the cost of a little more work on save."})
+    public static final Property<Boolean> VAULT_COMPRESSION =
+            newProperty("guis.vault.compression", true);
+
     private GuildVaultSettings() {
 
     }
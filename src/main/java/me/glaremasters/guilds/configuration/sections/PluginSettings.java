@@ -67,6 +67,26 @@ public final class PluginSettings implements SettingsHolder {
     public static final Property<Integer> SAVE_INTERVAL =
             newProperty("settings.save-interval", 1);
 
+    @Comment({"How would you like to store your Guild Data?",
+            "json - one file per guild in the data folder",
+            "sqlite - a single guilds.db file, only the rows that changed are written on save",
+            "Switching storage type does not move existing data over."})
+    public static final Property<String> STORAGE_TYPE =
+            newProperty("settings.storage.type", "json");
+
+    @Comment({"The journal writes every guild change to disk as it happens, so nothing is lost if the server crashes between saves.",
+            "With it enabled you can safely raise the save-interval."})
+    public static final Property<Boolean> JOURNAL_ENABLED =
+            newProperty("settings.journal.enabled", true);
+
+    @Comment("How often (in milliseconds) should journal entries be flushed to disk?")
+    public static final Property<Integer> JOURNAL_SYNC_INTERVAL =
+            newProperty("settings.journal.sync-interval", 500);
+
+    @Comment("Once the journal grows past this size (in kilobytes) the guilds are saved early so it can be cleared.")
+    public static final Property<Integer> JOURNAL_COMPACT_SIZE =
+            newProperty("settings.journal.compact-size", 1024);
+
     @Comment("Would you like to check for plugin updates on startup? It's highly suggested you keep this enabled!")
     public static final Property<Boolean> UPDATE_CHECK =
             newProperty("settings.update-check", true);
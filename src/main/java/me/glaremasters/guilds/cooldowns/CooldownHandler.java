@@ -29,7 +29,6 @@ import me.glaremasters.guilds.guild.Guild;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
@@ -45,7 +44,7 @@ public class CooldownHandler {
     private Map<String, Cooldown> cooldowns;
     private final CooldownsProvider cooldownsProvider;
 
-    public CooldownHandler(CooldownsProvider cooldownsProvider) throws FileNotFoundException {
+    public CooldownHandler(CooldownsProvider cooldownsProvider) throws IOException {
         this.cooldownsProvider = cooldownsProvider;
 
         cooldowns = cooldownsProvider.loadCooldowns();
@@ -28,6 +28,7 @@ import me.glaremasters.guilds.guild.Guild;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Created by GlareMasters
@@ -48,5 +49,22 @@ public interface DatabaseProvider {
      */
     void saveGuilds(List<Guild> guilds) throws IOException;
 
+    /**
+     * Saves a single guild to the database
+     * @param guild the guild to save
+     */
+    void saveGuild(Guild guild) throws IOException;
+
+    /**
+     * Deletes a single guild from the database
+     * @param id the id of the guild to delete
+     */
+    void deleteGuild(UUID id) throws IOException;
+
+    /**
+     * Releases anything the database holds on to, called once the final save is done
+     */
+    default void close() throws IOException {
+    }
 
 }
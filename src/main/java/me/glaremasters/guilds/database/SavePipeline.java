@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.glaremasters.guilds.database;
+
+import me.glaremasters.guilds.Guilds;
+import me.glaremasters.guilds.cooldowns.CooldownHandler;
+import me.glaremasters.guilds.guild.GuildHandler;
+import org.bukkit.Bukkit;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs autosaves in two stages: a snapshot of the changed guilds on the main thread,
+ * then serialization and file writes on a dedicated writer thread.
+ * Only one save is in flight at a time, saves requested meanwhile are coalesced into one follow up.
+ */
+public class SavePipeline {
+
+    private final Guilds guilds;
+    private final GuildHandler guildHandler;
+    private final CooldownHandler cooldownHandler;
+    private final ExecutorService writer;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private volatile boolean pending;
+
+    public SavePipeline(Guilds guilds, GuildHandler guildHandler, CooldownHandler cooldownHandler) {
+        this.guilds = guilds;
+        this.guildHandler = guildHandler;
+        this.cooldownHandler = cooldownHandler;
+        this.writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "Guilds Save Thread"));
+    }
+
+    /**
+     * Snapshot the changed guilds and hand them to the writer thread.
+     * Has to be called from the main thread.
+     */
+    public void requestSave() {
+        if (!inFlight.compareAndSet(false, true)) {
+            pending = true;
+            return;
+        }
+        pending = false;
+
+        GuildSaveSnapshot snapshot = guildHandler.createSnapshot();
+        writer.execute(() -> {
+            try {
+                GuildSaveResult result = guildHandler.writeSnapshot(snapshot);
+                if (result.getWritten() > 0 || result.getDeleted() > 0) guilds.info(result.toString());
+                cooldownHandler.saveCooldowns();
+                // Names learned since startup would otherwise only be written on a clean shutdown
+                guildHandler.getNameCache().save();
+            } catch (IOException | RuntimeException e) {
+                // Left uncaught the executor would swallow it, the changes are queued again for the next save
+                guilds.warn("Could not save the guilds, retrying on the next save: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                inFlight.set(false);
+                if (pending && guilds.isEnabled()) Bukkit.getScheduler().runTask(guilds, this::requestSave);
+            }
+        });
+    }
+
+    /**
+     * Wait for the save in flight to finish and stop the writer thread
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) guilds.warn("Timed out waiting for the last autosave to finish!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
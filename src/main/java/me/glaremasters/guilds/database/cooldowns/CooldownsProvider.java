@@ -30,11 +30,12 @@ import com.google.gson.GsonBuilder;
 import me.glaremasters.guilds.cooldowns.Cooldown;
 import org.apache.commons.io.FilenameUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -61,14 +62,16 @@ public class CooldownsProvider {
     /**
      * Load the cooldowns from the file
      * @return cooldowns
-     * @throws FileNotFoundException
+     * @throws IOException
      */
-    public Map<String, Cooldown> loadCooldowns() throws FileNotFoundException {
+    public Map<String, Cooldown> loadCooldowns() throws IOException {
         Map<String, Cooldown> cooldowns = new HashMap<>();
 
         for (File file: Objects.requireNonNull(dataFolder.listFiles())) {
             String name = FilenameUtils.removeExtension(file.getName());
-            cooldowns.put(name, gson.fromJson(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), Cooldown.class));
+            try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                cooldowns.put(name, gson.fromJson(reader, Cooldown.class));
+            }
         }
 
         return cooldowns;
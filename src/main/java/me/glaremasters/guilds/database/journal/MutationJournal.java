@@ -0,0 +1,344 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.database.journal;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import me.glaremasters.guilds.guild.Guild;
+import me.glaremasters.guilds.guild.GuildHome;
+import me.glaremasters.guilds.guild.GuildMember;
+import me.glaremasters.guilds.guild.GuildTier;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Append only log of guild changes made since the last save, so a crash between saves loses nothing.
+ * Entries are queued by the main thread and written plus synced to disk in batches by a background thread.
+ * The log is split in numbered segments: every save starts a new one and, once written, drops the older ones.
+ */
+public class MutationJournal {
+
+    private static final String EXTENSION = ".log";
+
+    private final File folder;
+    private final Logger logger;
+    private final Gson gson;
+    private final long compactSize;
+    // Either journal lines or segment operations, handled in order by the writer thread
+    private final Queue<Object> queue;
+    private final ScheduledExecutorService writer;
+    private final AtomicLong segment;
+    private final AtomicLong bytesSinceCheckpoint;
+
+    // Only touched by the writer thread
+    private long openSegment;
+    private OutputStream out;
+    private FileOutputStream file;
+
+    public MutationJournal(File folder, Logger logger, long syncInterval, long compactSize) {
+        this.folder = folder;
+        //noinspection ResultOfMethodCallIgnored
+        this.folder.mkdirs();
+        this.logger = logger;
+        this.gson = new Gson();
+        this.compactSize = compactSize;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.bytesSinceCheckpoint = new AtomicLong();
+        this.segment = new AtomicLong(segments().stream().mapToLong(Long::longValue).max().orElse(0) + 1);
+        this.openSegment = segment.get();
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "Guilds Journal Thread"));
+        this.writer.scheduleWithFixedDelay(this::flush, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a change to be written on the next flush
+     * @param guild the guild that changed
+     * @param type the kind of change
+     * @param value the new value, serialized right away so later changes don't leak in
+     */
+    public void record(Guild guild, JournalEntry.Type type, Object value) {
+        String line = gson.toJson(new JournalEntry(guild.getId(), type, gson.toJsonTree(value))) + "\n";
+        bytesSinceCheckpoint.addAndGet(line.length());
+        queue.add(line);
+    }
+
+    /**
+     * Start a new segment, everything recorded before this call ends up in the older ones.
+     * Called when a save snapshot is taken.
+     * @return the new segment, to pass to {@link #discard(long)} once the save is written
+     */
+    public long checkpoint() {
+        long next = segment.incrementAndGet();
+        bytesSinceCheckpoint.set(0);
+        queue.add((Runnable) () -> close(next));
+        return next;
+    }
+
+    /**
+     * Delete every segment older than the given one, as their changes are now in the database
+     * @param checkpoint the segment returned by {@link #checkpoint()}
+     */
+    public void discard(long checkpoint) {
+        queue.add((Runnable) () -> segments().stream().filter(s -> s < checkpoint).forEach(s -> {
+            try {
+                Files.deleteIfExists(segmentFile(s).toPath());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    /**
+     * Check if enough has been recorded since the last save that an early save is worth it
+     * @return if the journal should be compacted
+     */
+    public boolean needsCompaction() {
+        return bytesSinceCheckpoint.get() >= compactSize;
+    }
+
+    /**
+     * Apply every change in the journal on top of the guilds loaded from the database
+     * @param guilds the loaded guilds, updated in place
+     * @return the ids of the guilds that were changed and deleted by the journal
+     */
+    public JournalReplay replay(List<Guild> guilds) {
+        Map<UUID, Guild> byId = new LinkedHashMap<>();
+        guilds.forEach(g -> byId.put(g.getId(), g));
+        Set<UUID> touched = new HashSet<>();
+        int applied = 0;
+
+        for (long s : segments()) {
+            File segmentFile = segmentFile(s);
+            try (BufferedReader reader = Files.newBufferedReader(segmentFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    JournalEntry entry = gson.fromJson(line, JournalEntry.class);
+                    // Gson leaves the type out for names it doesn't know, e.g. from a newer version
+                    if (entry == null || entry.getType() == null || entry.getGuild() == null) {
+                        logger.warning("Skipping an unknown entry in journal segment " + segmentFile.getName() + ".");
+                        continue;
+                    }
+                    try {
+                        apply(byId, entry);
+                    } catch (RuntimeException e) {
+                        logger.warning("Skipping a " + entry.getType() + " entry in journal segment " + segmentFile.getName() + " that could not be applied: " + e);
+                        continue;
+                    }
+                    touched.add(entry.getGuild());
+                    applied++;
+                }
+            } catch (JsonParseException e) {
+                // The server went down in the middle of a write, nothing after this point made it to disk
+                logger.warning("Journal segment " + segmentFile.getName() + " ends with an incomplete entry, skipping the rest of it.");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (applied > 0) {
+            guilds.clear();
+            guilds.addAll(byId.values());
+            logger.info("Replayed " + applied + " journal entries over " + touched.size() + " guild(s).");
+        }
+        Set<UUID> deleted = new HashSet<>(touched);
+        deleted.removeAll(byId.keySet());
+        touched.retainAll(byId.keySet());
+        return new JournalReplay(touched, deleted);
+    }
+
+    /**
+     * Write out whatever is still queued and stop the writer thread
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        close(-1);
+    }
+
+    /**
+     * Write every queued line to the open segment and sync it to disk once for the whole batch
+     */
+    private void flush() {
+        boolean written = false;
+        Object item;
+        while ((item = queue.poll()) != null) {
+            try {
+                if (item instanceof Runnable) {
+                    if (written) sync();
+                    written = false;
+                    ((Runnable) item).run();
+                    continue;
+                }
+                if (out == null) open();
+                out.write(((String) item).getBytes(StandardCharsets.UTF_8));
+                written = true;
+            } catch (IOException e) {
+                logger.severe("Could not write to the guild journal: " + e.getMessage());
+            }
+        }
+        if (written) {
+            try {
+                sync();
+            } catch (IOException e) {
+                logger.severe("Could not sync the guild journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        file = new FileOutputStream(segmentFile(openSegment), true);
+        out = new BufferedOutputStream(file);
+    }
+
+    private void sync() throws IOException {
+        out.flush();
+        file.getFD().sync();
+    }
+
+    /**
+     * Close the open segment so the next write goes to a new one
+     * @param next the segment to write to next
+     */
+    private void close(long next) {
+        if (out != null) {
+            try {
+                sync();
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+            file = null;
+        }
+        openSegment = next;
+    }
+
+    private void apply(Map<UUID, Guild> guilds, JournalEntry entry) {
+        JsonElement value = entry.getValue();
+        if (entry.getType() == JournalEntry.Type.CREATE) {
+            guilds.put(entry.getGuild(), gson.fromJson(value, Guild.class));
+            return;
+        }
+        if (entry.getType() == JournalEntry.Type.DELETE) {
+            guilds.remove(entry.getGuild());
+            return;
+        }
+
+        Guild guild = guilds.get(entry.getGuild());
+        if (guild == null) return;
+
+        switch (entry.getType()) {
+            case MEMBER_JOIN:
+                GuildMember joined = gson.fromJson(value, GuildMember.class);
+                if (guild.getMember(joined.getUuid()) == null) guild.getMembers().add(joined);
+                guild.getInvitedMembers().remove(joined.getUuid());
+                break;
+            case MEMBER_LEAVE:
+                UUID left = gson.fromJson(value, UUID.class);
+                guild.getMembers().removeIf(m -> m.getUuid().equals(left));
+                break;
+            case ROLE:
+                GuildMember changed = gson.fromJson(value, GuildMember.class);
+                GuildMember member = guild.getMember(changed.getUuid());
+                if (member != null) member.setRole(changed.getRole());
+                break;
+            case MASTER:
+                GuildMember master = guild.getMember(gson.fromJson(value, UUID.class));
+                if (master != null) guild.setGuildMaster(master);
+                break;
+            case BALANCE:
+                guild.setBalance(value.getAsDouble());
+                break;
+            case RENAME:
+                guild.setName(value.getAsString());
+                break;
+            case PREFIX:
+                guild.setPrefix(value.getAsString());
+                break;
+            case HOME:
+                guild.setHome(gson.fromJson(value, GuildHome.class));
+                break;
+            case STATUS:
+                guild.setStatus(gson.fromJson(value, Guild.Status.class));
+                break;
+            case TIER:
+                guild.setTier(gson.fromJson(value, GuildTier.class));
+                break;
+            case ALLY_ADD:
+                UUID ally = gson.fromJson(value, UUID.class);
+                if (!guild.getAllies().contains(ally)) guild.getAllies().add(ally);
+                break;
+            case ALLY_REMOVE:
+                guild.getAllies().remove(gson.fromJson(value, UUID.class));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private List<Long> segments() {
+        File[] files = Objects.requireNonNull(folder.listFiles((dir, name) -> name.endsWith(EXTENSION)));
+        Long[] segments = Arrays.stream(files)
+                .map(f -> f.getName().substring(0, f.getName().length() - EXTENSION.length()))
+                .filter(n -> n.matches("\\d+"))
+                .map(Long::parseLong)
+                .sorted()
+                .toArray(Long[]::new);
+        return Arrays.asList(segments);
+    }
+
+    private File segmentFile(long segment) {
+        return new File(folder, segment + EXTENSION);
+    }
+}
@@ -26,20 +26,34 @@ package me.glaremasters.guilds.database.providers;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import me.glaremasters.guilds.database.DatabaseProvider;
 import me.glaremasters.guilds.guild.Guild;
 import org.apache.commons.io.FilenameUtils;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 /**
  * Created by GlareMasters
@@ -49,49 +63,124 @@ import java.util.Objects;
 public class JsonProvider implements DatabaseProvider {
 
     private final File dataFolder;
-    private final List<String> ids = new ArrayList<>();
+    private final File corruptFolder;
+    private final Logger logger;
     private Gson gson;
 
-    public JsonProvider(File dataFolder) {
+    public JsonProvider(File dataFolder, Logger logger) {
         this.dataFolder = new File(dataFolder, "data");
         //noinspection ResultOfMethodCallIgnored
         this.dataFolder.mkdir();
+        this.corruptFolder = new File(this.dataFolder, "corrupt");
+        this.logger = logger;
         gson = new GsonBuilder().setPrettyPrinting().create();
     }
 
     @Override
     public List<Guild> loadGuilds() throws IOException {
-        List<Guild> loadedGuilds = new ArrayList<>();
+        long start = System.nanoTime();
+        File[] files = Objects.requireNonNull(dataFolder.listFiles(f -> f.isFile() && f.getName().endsWith(".json")));
+        long listed = System.nanoTime();
+
+        // Each file is read and parsed independently, so spread them over a small pool
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> new Thread(r, "Guilds Load Thread"));
+        AtomicLong readTime = new AtomicLong();
+        AtomicLong parseTime = new AtomicLong();
+
+        List<Future<Guild>> futures = new ArrayList<>(files.length);
+        for (File file : files) {
+            futures.add(pool.submit(() -> loadGuild(file, readTime, parseTime)));
+        }
 
+        List<Guild> loadedGuilds = new ArrayList<>(files.length);
+        try {
+            for (Future<Guild> future : futures) {
+                Guild guild = future.get();
+                if (guild != null) loadedGuilds.add(guild);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading guilds", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load guilds", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
 
-        for (File file : Objects.requireNonNull(dataFolder.listFiles())) {
+        logger.info(String.format("Loaded %d of %d guild files in %dms (list %dms, read %dms, parse %dms across %d threads)",
+                loadedGuilds.size(), files.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                TimeUnit.NANOSECONDS.toMillis(listed - start), TimeUnit.NANOSECONDS.toMillis(readTime.get()),
+                TimeUnit.NANOSECONDS.toMillis(parseTime.get()), threads));
 
-            loadedGuilds.add(gson.fromJson(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), Guild.class));
+        return loadedGuilds;
+    }
 
+    /**
+     * Read and parse a single guild file, moving it aside if it can't be parsed
+     * @param file the file to load
+     * @param readTime total time spent reading
+     * @param parseTime total time spent parsing
+     * @return the guild or null if the file was corrupt
+     */
+    private Guild loadGuild(File file, AtomicLong readTime, AtomicLong parseTime) throws IOException {
+        long start = System.nanoTime();
+        byte[] data = Files.readAllBytes(file.toPath());
+        long read = System.nanoTime();
+        readTime.addAndGet(read - start);
+
+        Guild guild;
+        try (Reader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            guild = gson.fromJson(reader, Guild.class);
+        } catch (JsonParseException e) {
+            guild = null;
+        } finally {
+            parseTime.addAndGet(System.nanoTime() - read);
         }
 
-        return loadedGuilds;
+        if (guild == null || guild.getId() == null || guild.getMembers() == null) {
+            quarantine(file);
+            return null;
+        }
+        return guild;
+    }
+
+    /**
+     * Move a corrupt guild file out of the data folder so it doesn't stop the rest from loading
+     * @param file the corrupt file
+     */
+    private void quarantine(File file) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        corruptFolder.mkdir();
+        Files.move(file.toPath(), new File(corruptFolder, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.warning("Guild file " + file.getName() + " could not be read and was moved to " + corruptFolder.getPath());
     }
 
     @Override
     public void saveGuilds(List<Guild> guilds) throws IOException {
+        Set<String> ids = new HashSet<>();
 
         for (Guild guild : guilds) {
-            File file = new File(dataFolder, guild.getId() + ".json");
-
-            Files.write(Paths.get(file.getPath()), gson.toJson(guild).getBytes(StandardCharsets.UTF_8));
-
+            saveGuild(guild);
             ids.add(guild.getId().toString());
         }
 
-        for (File file : Objects.requireNonNull(dataFolder.listFiles())) {
-            String name = FilenameUtils.removeExtension(file.getName());
-            boolean keep = ids.stream().anyMatch(str -> str.equals(name));
-            if (!keep) {
+        for (File file : Objects.requireNonNull(dataFolder.listFiles(File::isFile))) {
+            if (!ids.contains(FilenameUtils.removeExtension(file.getName()))) {
                 file.delete();
             }
         }
-        ids.clear();
+    }
+
+    @Override
+    public void saveGuild(Guild guild) throws IOException {
+        File file = new File(dataFolder, guild.getId() + ".json");
+        Files.write(Paths.get(file.getPath()), gson.toJson(guild).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void deleteGuild(UUID id) throws IOException {
+        Files.deleteIfExists(Paths.get(new File(dataFolder, id + ".json").getPath()));
     }
 
 }
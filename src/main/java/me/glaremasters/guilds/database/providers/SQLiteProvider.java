@@ -0,0 +1,423 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.database.providers;
+
+import com.google.gson.Gson;
+import me.glaremasters.guilds.database.DatabaseProvider;
+import me.glaremasters.guilds.guild.Guild;
+import me.glaremasters.guilds.guild.GuildCode;
+import me.glaremasters.guilds.guild.GuildHome;
+import me.glaremasters.guilds.guild.GuildMember;
+import me.glaremasters.guilds.guild.GuildRole;
+import me.glaremasters.guilds.guild.GuildSkull;
+import me.glaremasters.guilds.guild.GuildTier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Stores guilds in an embedded SQLite file using one table per kind of data.
+ * The rows last written for every guild are remembered so a save only touches the rows that changed.
+ */
+public class SQLiteProvider implements DatabaseProvider {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS guilds (id TEXT PRIMARY KEY, name TEXT NOT NULL, prefix TEXT, motd TEXT, master TEXT NOT NULL, home TEXT, skull TEXT, status TEXT, tier INTEGER NOT NULL, balance REAL NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS guild_members (guild_id TEXT NOT NULL, uuid TEXT NOT NULL, role INTEGER NOT NULL, PRIMARY KEY (guild_id, uuid))",
+            "CREATE TABLE IF NOT EXISTS guild_allies (guild_id TEXT NOT NULL, ally_id TEXT NOT NULL, pending INTEGER NOT NULL, PRIMARY KEY (guild_id, ally_id, pending))",
+            "CREATE TABLE IF NOT EXISTS guild_invites (guild_id TEXT NOT NULL, uuid TEXT NOT NULL, PRIMARY KEY (guild_id, uuid))",
+            "CREATE TABLE IF NOT EXISTS guild_codes (guild_id TEXT NOT NULL, code TEXT NOT NULL, uses INTEGER NOT NULL, creator TEXT, PRIMARY KEY (guild_id, code))",
+            "CREATE TABLE IF NOT EXISTS guild_code_redeemers (guild_id TEXT NOT NULL, code TEXT NOT NULL, uuid TEXT NOT NULL, PRIMARY KEY (guild_id, code, uuid))",
+            "CREATE TABLE IF NOT EXISTS guild_vaults (guild_id TEXT NOT NULL, slot INTEGER NOT NULL, contents TEXT NOT NULL, PRIMARY KEY (guild_id, slot))"
+    };
+
+    private static final String[] TABLES = {"guilds", "guild_members", "guild_allies", "guild_invites", "guild_codes", "guild_code_redeemers", "guild_vaults"};
+
+    private final Connection connection;
+    private final Gson gson;
+    // What the database currently holds for every guild, used to work out which rows a save has to touch.
+    // Vaults are only kept as fingerprints so their contents don't stay in memory next to the vault cache
+    private final Map<UUID, GuildRows> written;
+
+    private final PreparedStatement upsertGuild, upsertMember, deleteMember, insertAlly, deleteAlly, insertInvite, deleteInvite,
+            upsertCode, deleteCode, insertRedeemer, deleteRedeemer, upsertVault, deleteVault;
+    private final PreparedStatement[] deleteAll;
+
+    public SQLiteProvider(File dataFolder) throws IOException {
+        this.gson = new Gson();
+        this.written = new HashMap<>();
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + new File(dataFolder, "guilds.db").getPath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                for (String table : SCHEMA) {
+                    statement.execute(table);
+                }
+            }
+            connection.setAutoCommit(false);
+
+            // Spigot ships an SQLite older than 3.24, so upserts are done with INSERT OR REPLACE
+            upsertGuild = connection.prepareStatement("INSERT OR REPLACE INTO guilds (id, name, prefix, motd, master, home, skull, status, tier, balance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            upsertMember = connection.prepareStatement("INSERT OR REPLACE INTO guild_members (guild_id, uuid, role) VALUES (?, ?, ?)");
+            deleteMember = connection.prepareStatement("DELETE FROM guild_members WHERE guild_id = ? AND uuid = ?");
+            insertAlly = connection.prepareStatement("INSERT OR REPLACE INTO guild_allies (guild_id, ally_id, pending) VALUES (?, ?, ?)");
+            deleteAlly = connection.prepareStatement("DELETE FROM guild_allies WHERE guild_id = ? AND ally_id = ? AND pending = ?");
+            insertInvite = connection.prepareStatement("INSERT OR REPLACE INTO guild_invites (guild_id, uuid) VALUES (?, ?)");
+            deleteInvite = connection.prepareStatement("DELETE FROM guild_invites WHERE guild_id = ? AND uuid = ?");
+            upsertCode = connection.prepareStatement("INSERT OR REPLACE INTO guild_codes (guild_id, code, uses, creator) VALUES (?, ?, ?, ?)");
+            deleteCode = connection.prepareStatement("DELETE FROM guild_codes WHERE guild_id = ? AND code = ?");
+            insertRedeemer = connection.prepareStatement("INSERT OR REPLACE INTO guild_code_redeemers (guild_id, code, uuid) VALUES (?, ?, ?)");
+            deleteRedeemer = connection.prepareStatement("DELETE FROM guild_code_redeemers WHERE guild_id = ? AND code = ? AND uuid = ?");
+            upsertVault = connection.prepareStatement("INSERT OR REPLACE INTO guild_vaults (guild_id, slot, contents) VALUES (?, ?, ?)");
+            deleteVault = connection.prepareStatement("DELETE FROM guild_vaults WHERE guild_id = ? AND slot = ?");
+
+            deleteAll = new PreparedStatement[TABLES.length];
+            for (int i = 0; i < TABLES.length; i++) {
+                deleteAll[i] = connection.prepareStatement("DELETE FROM " + TABLES[i] + " WHERE " + (i == 0 ? "id" : "guild_id") + " = ?");
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open the SQLite database", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Guild> loadGuilds() throws IOException {
+        Map<String, Guild.GuildBuilder> builders = new LinkedHashMap<>();
+        Map<String, String> masters = new HashMap<>();
+        Map<String, List<GuildMember>> members = new HashMap<>();
+        Map<String, List<UUID>> allies = new HashMap<>();
+        Map<String, List<UUID>> pendingAllies = new HashMap<>();
+        Map<String, List<UUID>> invites = new HashMap<>();
+        Map<String, Map<String, GuildCode>> codes = new HashMap<>();
+        Map<String, Map<Integer, String>> vaults = new HashMap<>();
+
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT id, name, prefix, motd, master, home, skull, status, tier, balance FROM guilds")) {
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    String status = rs.getString(8);
+                    builders.put(id, Guild.builder()
+                            .id(UUID.fromString(id))
+                            .name(rs.getString(2))
+                            .prefix(rs.getString(3))
+                            .motd(rs.getString(4))
+                            .home(gson.fromJson(rs.getString(6), GuildHome.class))
+                            .guildSkull(gson.fromJson(rs.getString(7), GuildSkull.class))
+                            .status(status == null ? null : Guild.Status.valueOf(status))
+                            .tier(GuildTier.builder().level(rs.getInt(9)).build())
+                            .balance(rs.getDouble(10)));
+                    masters.put(id, rs.getString(5));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, uuid, role FROM guild_members")) {
+                while (rs.next()) {
+                    members.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                            .add(new GuildMember(UUID.fromString(rs.getString(2)), GuildRole.builder().level(rs.getInt(3)).build()));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, ally_id, pending FROM guild_allies")) {
+                while (rs.next()) {
+                    (rs.getBoolean(3) ? pendingAllies : allies).computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(UUID.fromString(rs.getString(2)));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, uuid FROM guild_invites")) {
+                while (rs.next()) {
+                    invites.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(UUID.fromString(rs.getString(2)));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, code, uses, creator FROM guild_codes")) {
+                while (rs.next()) {
+                    String creator = rs.getString(4);
+                    codes.computeIfAbsent(rs.getString(1), k -> new LinkedHashMap<>()).put(rs.getString(2),
+                            new GuildCode(rs.getString(2), rs.getInt(3), creator == null ? null : UUID.fromString(creator), new ArrayList<>()));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, code, uuid FROM guild_code_redeemers")) {
+                while (rs.next()) {
+                    GuildCode code = codes.getOrDefault(rs.getString(1), new HashMap<>()).get(rs.getString(2));
+                    if (code != null) code.getRedeemers().add(UUID.fromString(rs.getString(3)));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT guild_id, slot, contents FROM guild_vaults ORDER BY slot")) {
+                while (rs.next()) {
+                    vaults.computeIfAbsent(rs.getString(1), k -> new LinkedHashMap<>()).put(rs.getInt(2), rs.getString(3));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not load guilds from the SQLite database", e);
+        }
+
+        List<Guild> loaded = new ArrayList<>(builders.size());
+        written.clear();
+        for (Map.Entry<String, Guild.GuildBuilder> entry : builders.entrySet()) {
+            String id = entry.getKey();
+            List<GuildMember> guildMembers = members.getOrDefault(id, new ArrayList<>());
+            UUID masterId = UUID.fromString(masters.get(id));
+            GuildMember master = guildMembers.stream().filter(m -> m.getUuid().equals(masterId)).findFirst()
+                    .orElseGet(() -> new GuildMember(masterId, GuildRole.builder().level(0).build()));
+
+            Guild guild = entry.getValue()
+                    .guildMaster(master)
+                    .members(guildMembers)
+                    .allies(allies.getOrDefault(id, new ArrayList<>()))
+                    .pendingAllies(pendingAllies.getOrDefault(id, new ArrayList<>()))
+                    .invitedMembers(invites.getOrDefault(id, new ArrayList<>()))
+                    .codes(new ArrayList<>(codes.getOrDefault(id, new HashMap<>()).values()))
+                    .vaults(new ArrayList<>(vaults.getOrDefault(id, new HashMap<>()).values()))
+                    .build();
+            loaded.add(guild);
+            written.put(guild.getId(), new GuildRows(guild, gson));
+        }
+        return loaded;
+    }
+
+    @Override
+    public synchronized void saveGuilds(List<Guild> guilds) throws IOException {
+        Set<UUID> ids = new HashSet<>();
+        for (Guild guild : guilds) {
+            saveGuild(guild);
+            ids.add(guild.getId());
+        }
+        for (UUID id : new ArrayList<>(written.keySet())) {
+            if (!ids.contains(id)) deleteGuild(id);
+        }
+    }
+
+    @Override
+    public synchronized void saveGuild(Guild guild) throws IOException {
+        String id = guild.getId().toString();
+        GuildRows before = written.getOrDefault(guild.getId(), GuildRows.EMPTY);
+        GuildRows after = new GuildRows(guild, gson);
+
+        try {
+            if (!after.guild.equals(before.guild)) {
+                upsertGuild.setString(1, id);
+                for (int i = 0; i < after.guild.size(); i++) {
+                    upsertGuild.setObject(i + 2, after.guild.get(i));
+                }
+                upsertGuild.addBatch();
+            }
+            diff(id, before.members, after.members, upsertMember, deleteMember);
+            diff(id, before.allies, after.allies, insertAlly, deleteAlly);
+            diff(id, before.invites, after.invites, insertInvite, deleteInvite);
+            diff(id, before.codes, after.codes, upsertCode, deleteCode);
+            diff(id, before.redeemers, after.redeemers, insertRedeemer, deleteRedeemer);
+            diffVaults(id, guild, before.vaults, after.vaults);
+
+            for (PreparedStatement statement : Arrays.asList(upsertGuild, deleteMember, upsertMember, deleteAlly, insertAlly, deleteInvite, insertInvite,
+                    deleteRedeemer, deleteCode, upsertCode, insertRedeemer, deleteVault, upsertVault)) {
+                statement.executeBatch();
+            }
+            connection.commit();
+            written.put(guild.getId(), after);
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not save guild " + id, e);
+        }
+    }
+
+    /**
+     * Check if the database holds no guilds yet
+     * @return if there are no guilds
+     */
+    public synchronized boolean isEmpty() throws IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT 1 FROM guilds LIMIT 1")) {
+            return !rs.next();
+        } catch (SQLException e) {
+            throw new IOException("Could not read the SQLite database", e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteGuild(UUID id) throws IOException {
+        try {
+            for (PreparedStatement statement : deleteAll) {
+                statement.setString(1, id.toString());
+                statement.executeUpdate();
+            }
+            connection.commit();
+            written.remove(id);
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not delete guild " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Could not close the SQLite database", e);
+        }
+    }
+
+    /**
+     * Queue the rows which were added, changed or removed between two versions of a child table.
+     * Keys are the primary key columns after the guild id, values the remaining columns.
+     * @param id the guild id
+     * @param before the rows currently in the database
+     * @param after the rows that should be in the database
+     * @param upsert statement taking the guild id, key and value columns
+     * @param delete statement taking the guild id and key columns
+     */
+    private void diff(String id, Map<List<Object>, List<Object>> before, Map<List<Object>, List<Object>> after,
+                      PreparedStatement upsert, PreparedStatement delete) throws SQLException {
+        for (Map.Entry<List<Object>, List<Object>> row : after.entrySet()) {
+            if (row.getValue().equals(before.get(row.getKey()))) continue;
+            int index = 1;
+            upsert.setString(index++, id);
+            for (Object column : row.getKey()) upsert.setObject(index++, column);
+            for (Object column : row.getValue()) upsert.setObject(index++, column);
+            upsert.addBatch();
+        }
+        for (List<Object> key : before.keySet()) {
+            if (after.containsKey(key)) continue;
+            int index = 1;
+            delete.setString(index++, id);
+            for (Object column : key) delete.setObject(index++, column);
+            delete.addBatch();
+        }
+    }
+
+    /**
+     * Queue the vaults which were added, changed or removed, comparing fingerprints and writing the contents from the guild
+     * @param id the guild id
+     * @param guild the guild being saved
+     * @param before the vault fingerprints currently in the database
+     * @param after the vault fingerprints that should be in the database
+     */
+    private void diffVaults(String id, Guild guild, Map<Integer, List<Object>> before, Map<Integer, List<Object>> after) throws SQLException {
+        for (Map.Entry<Integer, List<Object>> vault : after.entrySet()) {
+            if (vault.getValue().equals(before.get(vault.getKey()))) continue;
+            upsertVault.setString(1, id);
+            upsertVault.setInt(2, vault.getKey());
+            upsertVault.setString(3, guild.getVaults().get(vault.getKey()));
+            upsertVault.addBatch();
+        }
+        for (Integer slot : before.keySet()) {
+            if (after.containsKey(slot)) continue;
+            deleteVault.setString(1, id);
+            deleteVault.setInt(2, slot);
+            deleteVault.addBatch();
+        }
+    }
+
+    /**
+     * Undo a failed save, dropping whatever was still queued
+     */
+    private void rollback() {
+        try {
+            for (PreparedStatement statement : Arrays.asList(upsertGuild, upsertMember, deleteMember, insertAlly, deleteAlly, insertInvite, deleteInvite,
+                    upsertCode, deleteCode, insertRedeemer, deleteRedeemer, upsertVault, deleteVault)) {
+                statement.clearBatch();
+            }
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The column values a guild is stored as, keyed by primary key so two versions can be compared row by row
+     */
+    private static final class GuildRows {
+
+        private static final GuildRows EMPTY = new GuildRows();
+
+        private final List<Object> guild;
+        private final Map<List<Object>, List<Object>> members = new HashMap<>();
+        private final Map<List<Object>, List<Object>> allies = new HashMap<>();
+        private final Map<List<Object>, List<Object>> invites = new HashMap<>();
+        private final Map<List<Object>, List<Object>> codes = new HashMap<>();
+        private final Map<List<Object>, List<Object>> redeemers = new HashMap<>();
+        private final Map<Integer, List<Object>> vaults = new HashMap<>();
+
+        private GuildRows() {
+            guild = new ArrayList<>();
+        }
+
+        private GuildRows(Guild g, Gson gson) {
+            guild = Arrays.asList(g.getName(), g.getPrefix(), g.getMotd(), g.getGuildMaster().getUuid().toString(),
+                    g.getHome() == null ? null : gson.toJson(g.getHome()),
+                    g.getGuildSkull() == null ? null : gson.toJson(g.getGuildSkull()),
+                    g.getStatus() == null ? null : g.getStatus().name(),
+                    g.getTier().getLevel(), g.getBalance());
+
+            g.getMembers().forEach(m -> members.put(key(m.getUuid().toString()), key(m.getRole().getLevel())));
+            g.getAllies().forEach(a -> allies.put(key(a.toString(), 0), key()));
+            g.getPendingAllies().forEach(a -> allies.put(key(a.toString(), 1), key()));
+            g.getInvitedMembers().forEach(i -> invites.put(key(i.toString()), key()));
+            if (g.getCodes() != null) {
+                for (GuildCode code : g.getCodes()) {
+                    codes.put(key(code.getId()), key(code.getUses(), Objects.toString(code.getCreator(), null)));
+                    code.getRedeemers().forEach(r -> redeemers.put(key(code.getId(), r.toString()), key()));
+                }
+            }
+            if (g.getVaults() != null) {
+                for (int i = 0; i < g.getVaults().size(); i++) {
+                    vaults.put(i, fingerprint(g.getVaults().get(i)));
+                }
+            }
+        }
+
+        private static List<Object> key(Object... columns) {
+            return Arrays.asList(columns);
+        }
+
+        /**
+         * Fingerprint a stored vault by its length and two independent checksums, so it can be compared without keeping it
+         * @param contents the serialized vault
+         * @return the fingerprint
+         */
+        private static List<Object> fingerprint(String contents) {
+            if (contents == null) return key();
+            CRC32 crc = new CRC32();
+            crc.update(contents.getBytes(StandardCharsets.UTF_8));
+            return key(contents.length(), contents.hashCode(), crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import lombok.Getter;
+
+/**
+ * The chat state of an online player. Written from the main thread and read from the async chat thread,
+ * so every field is volatile.
+ */
+@Getter
+public class ChatSession {
+
+    private volatile ChatMode mode = ChatMode.PUBLIC;
+    private volatile boolean spy;
+    private volatile Guild guild;
+    private volatile GuildMember member;
+
+    void setMode(ChatMode mode) {
+        this.mode = mode;
+    }
+
+    void setSpy(boolean spy) {
+        this.spy = spy;
+    }
+
+    /**
+     * Point the session at the guild the player is in, dropping them out of guild and ally chat if they left it
+     * @param guild the guild of the player, null if they aren't in one
+     * @param member the player as a member of the guild
+     */
+    void bind(Guild guild, GuildMember member) {
+        this.member = member;
+        this.guild = guild;
+        if (guild == null) mode = ChatMode.PUBLIC;
+    }
+}
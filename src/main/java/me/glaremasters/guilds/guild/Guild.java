@@ -26,12 +26,15 @@ package me.glaremasters.guilds.guild;
 
 import co.aikar.commands.ACFUtil;
 import co.aikar.commands.CommandManager;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
+import me.glaremasters.guilds.database.journal.JournalEntry;
 import me.glaremasters.guilds.exceptions.ExpectationNotMet;
 import me.glaremasters.guilds.messages.Messages;
+import me.glaremasters.guilds.utils.BroadcastUtils;
 import me.glaremasters.guilds.utils.SkullUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -42,7 +45,11 @@ import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -80,6 +87,58 @@ public class Guild {
 
     private List<String> vaults;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.PACKAGE)
+    private transient GuildHandler guildHandler;
+
+    @Setter(AccessLevel.NONE)
+    private transient volatile boolean dirty;
+
+    // Bumped on every change, placeholder snapshots built at an older revision are stale
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile int revision;
+
+    /**
+     * Flag the guild as changed so it gets written on the next save
+     */
+    public void markDirty() {
+        dirty = true;
+        revision++;
+    }
+
+    /**
+     * Clear the changed flag once the guild has been handed to the database
+     */
+    void markClean() {
+        dirty = false;
+    }
+
+    /**
+     * Point the tier and member roles at the ones from the given registries without flagging the guild.
+     * Used after the guild is loaded and when the config is reloaded.
+     * @param registries the registries to take the roles and tiers from
+     */
+    void rebind(GuildRegistries registries) {
+        GuildTier current = registries.getTier(tier.getLevel());
+        if (current != null) tier = current;
+        members.forEach(m -> {
+            GuildRole role = registries.getRole(m.getRole().getLevel());
+            if (role != null) m.setRole(role);
+        });
+        GuildRole masterRole = registries.getRole(guildMaster.getRole().getLevel());
+        if (masterRole != null) guildMaster.setRole(masterRole);
+    }
+
+    /**
+     * Write a change to the guild handler's journal, if the guild is attached to one
+     * @param type the kind of change
+     * @param value the new value
+     */
+    private void record(JournalEntry.Type type, Object value) {
+        if (guildHandler != null) guildHandler.record(this, type, value);
+    }
+
     /**
      * Get a member in the guild
      * @param uuid the uuid of the member
@@ -89,12 +148,140 @@ public class Guild {
         return getMembers().stream().filter(m -> m.getUuid().equals(uuid)).findFirst().orElse(null);
     }
 
+    /**
+     * Create a detached copy of the guild which can be serialized while the original keeps changing
+     * @return copy of the guild
+     */
+    public Guild copy() {
+        return Guild.builder()
+                .id(id)
+                .name(name)
+                .prefix(prefix)
+                .motd(motd)
+                .guildMaster(new GuildMember(guildMaster.getUuid(), guildMaster.getRole()))
+                .home(home)
+                .guildSkull(guildSkull)
+                .status(status)
+                .tier(tier)
+                .balance(balance)
+                .members(members.stream().map(m -> new GuildMember(m.getUuid(), m.getRole())).collect(Collectors.toList()))
+                .invitedMembers(new ArrayList<>(invitedMembers))
+                .allies(new ArrayList<>(allies))
+                .pendingAllies(new ArrayList<>(pendingAllies))
+                .codes(codes == null ? null : codes.stream().map(c -> new GuildCode(c.getId(), c.getUses(), c.getCreator(), new ArrayList<>(c.getRedeemers()))).collect(Collectors.toList()))
+                .vaults(vaults == null ? null : new ArrayList<>(vaults))
+                .build();
+    }
+
+    /**
+     * Rename the guild, keeping the guild handler's name lookup up to date
+     * @param name the new name
+     */
+    public void setName(String name) {
+        String oldName = this.name;
+        this.name = name;
+        markDirty();
+        record(JournalEntry.Type.RENAME, name);
+        if (guildHandler != null) guildHandler.reindexName(this, oldName);
+    }
+
+    /**
+     * Set the prefix of the guild
+     * @param prefix the new prefix
+     */
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+        markDirty();
+        record(JournalEntry.Type.PREFIX, prefix);
+    }
+
+    /**
+     * Set the motd of the guild
+     * @param motd the new motd
+     */
+    public void setMotd(String motd) {
+        this.motd = motd;
+        markDirty();
+    }
+
+    /**
+     * Set the master of the guild
+     * @param guildMaster the new master
+     */
+    public void setGuildMaster(GuildMember guildMaster) {
+        this.guildMaster = guildMaster;
+        markDirty();
+        record(JournalEntry.Type.MASTER, guildMaster.getUuid());
+    }
+
+    /**
+     * Set the home of the guild
+     * @param home the new home
+     */
+    public void setHome(GuildHome home) {
+        this.home = home;
+        markDirty();
+        record(JournalEntry.Type.HOME, home);
+    }
+
+    /**
+     * Set the skull of the guild
+     * @param guildSkull the new skull
+     */
+    public void setGuildSkull(GuildSkull guildSkull) {
+        this.guildSkull = guildSkull;
+        markDirty();
+        if (guildHandler != null) guildHandler.listingChanged(this);
+    }
+
+    /**
+     * Set the status of the guild
+     * @param status the new status
+     */
+    public void setStatus(Status status) {
+        this.status = status;
+        markDirty();
+        record(JournalEntry.Type.STATUS, status);
+    }
+
+    /**
+     * Set the tier of the guild
+     * @param tier the new tier
+     */
+    public void setTier(GuildTier tier) {
+        this.tier = tier;
+        markDirty();
+        record(JournalEntry.Type.TIER, tier);
+        if (guildHandler != null) guildHandler.refreshModifiers(this);
+    }
+
+    /**
+     * Set the balance of the guild
+     * @param balance the new balance
+     */
+    public void setBalance(double balance) {
+        this.balance = balance;
+        markDirty();
+        record(JournalEntry.Type.BALANCE, balance);
+    }
+
+    /**
+     * Set the serialized vaults of the guild
+     * @param vaults the new vaults
+     */
+    public void setVaults(List<String> vaults) {
+        this.vaults = vaults;
+        markDirty();
+    }
+
     /**
      * Get the itemstack of the guild skull
      * @return itemstack of skull
      */
     public ItemStack getSkull() {
-        return SkullUtils.getSkull(guildSkull.getSerialized());
+        // The skull is still being looked up right after the guild is created
+        if (guildSkull == null) return SkullUtils.getSkull("");
+        return guildSkull.getItemStack();
     }
 
 
@@ -108,6 +295,9 @@ public class Guild {
         if (getMembers().contains(member)) return;
         removeInvitedMember(member.getUuid());
         getMembers().add(member);
+        markDirty();
+        guildHandler.indexMember(member.getUuid(), this);
+        record(JournalEntry.Type.MEMBER_JOIN, member);
     }
 
     /**
@@ -116,6 +306,9 @@ public class Guild {
      */
     public void addMemberByCode(GuildMember guildMember) {
         getMembers().add(guildMember);
+        markDirty();
+        if (guildHandler != null) guildHandler.indexMember(guildMember.getUuid(), this);
+        record(JournalEntry.Type.MEMBER_JOIN, guildMember);
     }
 
     /**
@@ -123,7 +316,22 @@ public class Guild {
      * @param guildMember the guildmember to remove
      */
     public void removeMember(GuildMember guildMember){
+        if (guildMember == null) return;
         getMembers().remove(guildMember);
+        markDirty();
+        if (guildHandler != null) guildHandler.unindexMember(guildMember.getUuid(), this);
+        record(JournalEntry.Type.MEMBER_LEAVE, guildMember.getUuid());
+    }
+
+    /**
+     * Change the role of a member
+     * @param member the member being changed
+     * @param role the new role
+     */
+    public void setMemberRole(GuildMember member, GuildRole role) {
+        member.setRole(role);
+        markDirty();
+        record(JournalEntry.Type.ROLE, member);
     }
 
     /**
@@ -140,6 +348,9 @@ public class Guild {
      */
     public void removeAlly(Guild guild) {
         getAllies().remove(guild.getId());
+        markDirty();
+        if (guildHandler != null) guildHandler.alliesChanged(this);
+        record(JournalEntry.Type.ALLY_REMOVE, guild.getId());
     }
 
     /**
@@ -148,6 +359,9 @@ public class Guild {
      */
     public void addAlly(Guild guild) {
         getAllies().add(guild.getId());
+        markDirty();
+        if (guildHandler != null) guildHandler.alliesChanged(this);
+        record(JournalEntry.Type.ALLY_ADD, guild.getId());
     }
 
     /**
@@ -172,6 +386,7 @@ public class Guild {
      */
     public void addPendingAlly(Guild guild) {
         getPendingAllies().add(guild.getId());
+        markDirty();
     }
 
     /**
@@ -189,6 +404,7 @@ public class Guild {
      */
     public void removePendingAlly(Guild guild) {
         getPendingAllies().remove(guild.getId());
+        markDirty();
     }
 
     /**
@@ -199,6 +415,7 @@ public class Guild {
     public void inviteMember(UUID uuid) {
         if (getInvitedMembers().contains(uuid)) return;
         getInvitedMembers().add(uuid);
+        markDirty();
     }
 
     /**
@@ -217,6 +434,7 @@ public class Guild {
      */
     public void removeInvitedMember(UUID uuid) {
         getInvitedMembers().remove(uuid);
+        markDirty();
     }
 
     /**
@@ -228,20 +446,41 @@ public class Guild {
     }
 
     /**
-     * Returns amount of online members
+     * Returns the online members
      *
      * @return a List of online members
      */
     public List<GuildMember> getOnlineMembers() {
-        return getMembers().stream().filter(GuildMember::isOnline).collect(Collectors.toList());
+        if (guildHandler == null) return getMembers().stream().filter(GuildMember::isOnline).collect(Collectors.toList());
+        // One pass over the members instead of a member lookup per online player
+        Set<UUID> online = new HashSet<>();
+        getOnlinePlayers().forEach(p -> online.add(p.getUniqueId()));
+        return getMembers().stream().filter(m -> online.contains(m.getUuid())).collect(Collectors.toList());
     }
 
     /**
      * Get all online members as players
-     * @return list of players
+     * @return a copy of the online players
      */
     public List<Player> getOnlineAsPlayers() {
-        return getOnlineMembers().stream().map(m -> Bukkit.getPlayer(m.getUuid())).collect(Collectors.toList());
+        return new ArrayList<>(getOnlinePlayers());
+    }
+
+    /**
+     * Get all online members as players without copying them
+     * @return the online players, a live view while the guild is attached to the guild handler
+     */
+    public Collection<Player> getOnlinePlayers() {
+        if (guildHandler == null) return getMembers().stream().map(m -> Bukkit.getPlayer(m.getUuid())).filter(Objects::nonNull).collect(Collectors.toList());
+        return guildHandler.getOnlinePlayers(this);
+    }
+
+    /**
+     * Get the amount of online members
+     * @return amount of online members
+     */
+    public int getOnlineCount() {
+        return getOnlinePlayers().size();
     }
 
     /**
@@ -286,6 +525,8 @@ public class Guild {
      */
     public void addCode(String code, int uses, Player creator) {
         getCodes().add(new GuildCode(code, uses, creator.getUniqueId(), new ArrayList<>()));
+        markDirty();
+        if (guildHandler != null) guildHandler.indexCode(code, this);
     }
 
     /**
@@ -293,7 +534,9 @@ public class Guild {
      * @param code the code being checked
      */
     public void removeCode(String code) {
-        getCodes().removeIf(s -> s.getId().equals(code));
+        if (!getCodes().removeIf(s -> s.getId().equals(code))) return;
+        markDirty();
+        if (guildHandler != null) guildHandler.unindexCode(code, this);
     }
 
     /**
@@ -313,7 +556,11 @@ public class Guild {
     public String getRedeemers(String code) {
         GuildCode gc = getCode(code);
         StringBuilder builder = new StringBuilder();
-        gc.getRedeemers().forEach(r -> builder.append(Bukkit.getOfflinePlayer(r).getName() + ", "));
+        if (guildHandler == null) {
+            gc.getRedeemers().forEach(r -> builder.append(Bukkit.getOfflinePlayer(r).getName() + ", "));
+        } else {
+            guildHandler.getNameCache().getNames(gc.getRedeemers()).forEach(n -> builder.append(n).append(", "));
+        }
         builder.setLength(builder.length() - 2);
         return builder.toString();
     }
@@ -325,7 +572,7 @@ public class Guild {
      * @param replacements any args we need to handle
      */
     public void sendMessage(CommandManager manager, Messages key, String... replacements) {
-        getOnlineMembers().forEach(m -> manager.getCommandIssuer(Bukkit.getPlayer(m.getUuid())).sendInfo(key, replacements));
+        BroadcastUtils.broadcast(manager, getOnlinePlayers(), key, replacements);
     }
 
     /**
@@ -333,7 +580,7 @@ public class Guild {
      * @param message the message to send
      */
     public void sendMessage(String message) {
-        getOnlineAsPlayers().forEach(m -> m.sendMessage(message));
+        getOnlinePlayers().forEach(m -> m.sendMessage(message));
     }
 
     /**
@@ -395,8 +642,8 @@ public class Guild {
         if (newMaster.getRole().getLevel() != 1)
             ACFUtil.sneaky(new ExpectationNotMet(Messages.ERROR__NOT_OFFICER));
 
-        oldMaster.setRole(newMaster.getRole());
-        newMaster.setRole(gm);
+        setMemberRole(oldMaster, newMaster.getRole());
+        setMemberRole(newMaster, gm);
         setGuildMaster(newMaster);
     }
 
@@ -407,7 +654,15 @@ public class Guild {
      * @param amplifier the strength of the potion
      */
     public void addPotion(String type, int length, int amplifier) {
-        getOnlineAsPlayers().forEach(p -> p.addPotionEffect(new PotionEffect(PotionEffectType.getByName(type), length, amplifier)));
+        getOnlinePlayers().forEach(p -> p.addPotionEffect(new PotionEffect(PotionEffectType.getByName(type), length, amplifier)));
+    }
+
+    /**
+     * Add an already built buff to all online members
+     * @param effect the potion effect
+     */
+    public void addPotion(PotionEffect effect) {
+        getOnlinePlayers().forEach(p -> p.addPotionEffect(effect));
     }
 }
 
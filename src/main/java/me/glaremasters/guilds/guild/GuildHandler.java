@@ -28,22 +28,30 @@ import ch.jalu.configme.SettingsManager;
 import co.aikar.commands.ACFBukkitUtil;
 import co.aikar.commands.ACFUtil;
 import co.aikar.commands.CommandManager;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import me.glaremasters.guilds.Guilds;
+import me.glaremasters.guilds.configuration.CompiledSettings;
 import me.glaremasters.guilds.configuration.sections.GuildSettings;
 import me.glaremasters.guilds.configuration.sections.GuildVaultSettings;
 import me.glaremasters.guilds.configuration.sections.TicketSettings;
 import me.glaremasters.guilds.database.DatabaseProvider;
+import me.glaremasters.guilds.database.GuildSaveResult;
+import me.glaremasters.guilds.database.GuildSaveSnapshot;
+import me.glaremasters.guilds.database.journal.JournalEntry;
+import me.glaremasters.guilds.database.journal.JournalReplay;
+import me.glaremasters.guilds.database.journal.MutationJournal;
+import me.glaremasters.guilds.database.GuildSnapshot;
 import me.glaremasters.guilds.exceptions.ExpectationNotMet;
 import me.glaremasters.guilds.messages.Messages;
+import me.glaremasters.guilds.names.NameCache;
+import me.glaremasters.guilds.utils.BroadcastUtils;
 import me.glaremasters.guilds.utils.ItemBuilder;
 import me.glaremasters.guilds.utils.Serialization;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -52,10 +60,17 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -63,114 +78,332 @@ public class GuildHandler {
 
 
     @Getter private List<Guild> guilds;
-    private final List<GuildRole> roles;
-    private final List<GuildTier> tiers;
-    @Getter private final List<Player> spies;
-    @Getter private final List<Player> guildChat;
-
-    @Getter private Map<Guild, List<Inventory>> cachedVaults;
+    // Roles and tiers by level, replaced as a whole when the config is reloaded
+    private volatile GuildRegistries registries;
+    // Chat state of online players by uuid, read from the async chat thread
+    private final Map<UUID, ChatSession> chatSessions;
+    private final Set<Player> spies;
+
+    // Vaults are only turned into inventories once opened
+    private final VaultCache vaultCache;
     @Getter private List<Player> openedVault;
 
+    // Maps every member's uuid to the guild they are in, kept up to date by the guild itself
+    private final Map<UUID, Guild> memberIndex;
+    // Secondary lookups by guild id, color stripped lower case name and invite code
+    private final Map<UUID, Guild> idIndex;
+    private final Map<String, Guild> nameIndex;
+    private final Map<String, Guild> codeIndex;
+    // Online members of each guild by guild id, kept up to date by join / quit and membership changes
+    private final Map<UUID, Set<Player>> onlinePlayers;
+    // Online sets of each guild and its allies by guild id, rebuilt whenever an alliance changes
+    private final Map<UUID, List<Set<Player>>> allyAudiences;
+    // The guild list in each of its orders
+    @Getter private final GuildListIndex listIndex;
+    // Resolved placeholder values of online guild members
+    private final Map<UUID, PlaceholderSnapshot> placeholders;
+    // Tier bonuses of online guild members, players without an entry get PlayerModifiers.NONE
+    private final Map<UUID, PlayerModifiers> modifiers;
+    // Same guild / ally relations between pairs of players for the combat checks
+    private final RelationCache relationCache;
+    // Ids of guilds removed since the last save which still have to be deleted from the database
+    private final Set<UUID> deletedGuilds;
+
     private final DatabaseProvider databaseProvider;
     private final CommandManager commandManager;
     private final Permission permission;
     private final SettingsManager settingsManager;
+    private final Logger logger;
+    @Getter private final NameCache nameCache;
+    // Null when the journal is turned off in the config
+    private final MutationJournal journal;
+    // Set once the loaded guilds are live, the journal can't be checkpointed before that
+    private volatile boolean published;
 
     //as well as guild permissions from tiers using permission field and tiers list.
 
-    public GuildHandler(DatabaseProvider databaseProvider, CommandManager commandManager, Permission permission, FileConfiguration config, SettingsManager settingsManager) {
+    public GuildHandler(DatabaseProvider databaseProvider, CommandManager commandManager, Permission permission, FileConfiguration config, SettingsManager settingsManager, Logger logger, NameCache nameCache, MutationJournal journal) {
         this.databaseProvider = databaseProvider;
         this.commandManager = commandManager;
         this.permission = permission;
         this.settingsManager = settingsManager;
-
-        roles = new ArrayList<>();
-        tiers = new ArrayList<>();
-        spies = new ArrayList<>();
-        guildChat = new ArrayList<>();
-        cachedVaults = new HashMap<>();
+        this.logger = logger;
+        this.nameCache = nameCache;
+        this.journal = journal;
+
+        guilds = new ArrayList<>();
+        chatSessions = new ConcurrentHashMap<>();
+        spies = ConcurrentHashMap.newKeySet();
+        vaultCache = new VaultCache(settingsManager, settingsManager.getProperty(GuildVaultSettings.VAULT_CACHE_SIZE));
         openedVault = new ArrayList<>();
+        memberIndex = new ConcurrentHashMap<>();
+        idIndex = new ConcurrentHashMap<>();
+        nameIndex = new ConcurrentHashMap<>();
+        codeIndex = new ConcurrentHashMap<>();
+        deletedGuilds = ConcurrentHashMap.newKeySet();
+        relationCache = new RelationCache();
+        modifiers = new ConcurrentHashMap<>();
+        placeholders = new ConcurrentHashMap<>();
+        listIndex = new GuildListIndex();
+        onlinePlayers = new ConcurrentHashMap<>();
+        allyAudiences = new ConcurrentHashMap<>();
+
+        registries = GuildRegistries.load(config);
+
+        Set<UUID> replayed = new HashSet<>();
+        Set<UUID> replayedDeletes = new HashSet<>();
+        Guilds.newChain().asyncFirst(() -> {
+            try {
+                List<Guild> loaded = databaseProvider.loadGuilds();
+                if (journal != null) {
+                    JournalReplay replay = journal.replay(loaded);
+                    replayed.addAll(replay.getChanged());
+                    replayedDeletes.addAll(replay.getDeleted());
+                }
+                return loaded;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }).abortIfNull().syncLast(loaded -> publishGuilds(loaded, replayed, replayedDeletes)).execute();
 
-        //GuildRoles objects
-        ConfigurationSection roleSection = config.getConfigurationSection("roles");
-
-        for (String s : roleSection.getKeys(false)) {
-            String path = s + ".permissions.";
-
-            roles.add(GuildRole.builder().name(roleSection.getString(s + ".name"))
-                    .node(roleSection.getString(s + ".permission-node"))
-                    .level(Integer.parseInt(s))
-                    .chat(roleSection.getBoolean(path + "chat"))
-                    .allyChat(roleSection.getBoolean(path + "ally-chat"))
-                    .invite(roleSection.getBoolean(path + "invite"))
-                    .kick(roleSection.getBoolean(path + "kick"))
-                    .promote(roleSection.getBoolean(path + "promote"))
-                    .demote(roleSection.getBoolean(path + "demote"))
-                    .addAlly(roleSection.getBoolean(path + "add-ally"))
-                    .removeAlly(roleSection.getBoolean(path + "remove-ally"))
-                    .changePrefix(roleSection.getBoolean(path + "change-prefix"))
-                    .changeName(roleSection.getBoolean(path + "rename"))
-                    .changeHome(roleSection.getBoolean(path + "change-home"))
-                    .removeGuild(roleSection.getBoolean(path + "remove-guild"))
-                    .changeStatus(roleSection.getBoolean(path + "toggle-guild"))
-                    .openVault(roleSection.getBoolean(path + "open-vault"))
-                    .transferGuild(roleSection.getBoolean(path + "transfer-guild"))
-                    .activateBuff(roleSection.getBoolean(path + "activate-buff"))
-                    .upgradeGuild(roleSection.getBoolean(path + "upgrade-guild"))
-                    .depositMoney(roleSection.getBoolean(path + "deposit-money"))
-                    .withdrawMoney(roleSection.getBoolean(path + "withdraw-money"))
-                    .claimLand(roleSection.getBoolean(path + "claim-land"))
-                    .unclaimLand(roleSection.getBoolean(path + "unclaim-land"))
-                    .destroy(roleSection.getBoolean(path + "destroy"))
-                    .place(roleSection.getBoolean(path + "place"))
-                    .interact(roleSection.getBoolean(path + "interact"))
-                    .createCode(roleSection.getBoolean(path + "create-code"))
-                    .deleteCode(roleSection.getBoolean(path + "delete-code"))
-                    .seeCodeRedeemers(roleSection.getBoolean(path + "see-code-redeemers"))
-                    .modifyMotd(roleSection.getBoolean(path + "modify-motd"))
-                    .build());
-        }
+    }
+
+    /**
+     * Finish loading the guilds and make them visible to the rest of the plugin in one go
+     * @param loaded the guilds read from the database
+     * @param replayed the guilds changed by the journal, which still have to be saved
+     * @param replayedDeletes the guilds deleted by the journal, which still have to be removed from the database
+     */
+    private void publishGuilds(List<Guild> loaded, Set<UUID> replayed, Set<UUID> replayedDeletes) {
+        long start = System.nanoTime();
+        GuildRegistries current = registries;
+        loaded.forEach(g -> {
+            g.rebind(current);
+            if (replayed.contains(g.getId())) g.markDirty();
+            else g.markClean();
+        });
+        deletedGuilds.addAll(replayedDeletes);
+        long rebind = System.nanoTime();
+
+        // Keep anything created while the load was still running
+        loaded.addAll(guilds);
+        loaded.forEach(this::attachGuild);
+        guilds = loaded;
+        published = true;
+        relationCache.invalidate();
+        // Clear the sets rather than the map, the ally audiences hold on to them
+        onlinePlayers.values().forEach(Set::clear);
+        Bukkit.getOnlinePlayers().forEach(this::trackOnline);
+        allyAudiences.clear();
+        guilds.forEach(this::rebuildAllyAudience);
+        listIndex.rebuild(guilds);
+        nameCache.warm(memberIndex.keySet());
+        refreshAllModifiers();
+
+        logger.info(String.format("Published %d guilds (role/tier rebind %dms, index %dms)",
+                loaded.size(), TimeUnit.NANOSECONDS.toMillis(rebind - start), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - rebind)));
+    }
+
+    /**
+     * Rebuild the roles and tiers from the config and point every guild at the new ones.
+     * Has to be called from the main thread.
+     * @param config the reloaded config
+     */
+    public void reloadRegistries(FileConfiguration config) {
+        GuildRegistries reloaded = GuildRegistries.load(config);
+        registries = reloaded;
+        guilds.forEach(g -> g.rebind(reloaded));
+        refreshAllModifiers();
+        placeholders.clear();
+    }
 
+    /**
+     * Get the placeholder values of a player, building them again only if their guild or its master's name changed since the last call
+     * @param player the player
+     * @return the placeholder values, null if the player isn't in a guild
+     */
+    public PlaceholderSnapshot getPlaceholders(Player player) {
+        UUID uuid = player.getUniqueId();
+        Guild guild = memberIndex.get(uuid);
+        if (guild == null) return null;
+
+        // The master's name can still be resolving, so it's part of what the snapshot depends on
+        String master = nameCache.getName(guild.getGuildMaster().getUuid());
+        PlaceholderSnapshot snapshot = placeholders.get(uuid);
+        if (snapshot != null && snapshot.getGuild() == guild && snapshot.getRevision() == guild.getRevision()
+                && snapshot.getMaster().equals(master))
+            return snapshot;
+
+        GuildMember member = guild.getMember(uuid);
+        if (member == null) return null;
+        snapshot = new PlaceholderSnapshot(guild, member, getOnlinePlayers(guild), master, formatPlaceholder(guild));
+        placeholders.put(uuid, snapshot);
+        return snapshot;
+    }
 
-        //GuildTier objects
-        ConfigurationSection tierSection = config.getConfigurationSection("tiers.list");
-        for (String key : tierSection.getKeys(false)) {
-            tiers.add(GuildTier.builder()
-                    .level(tierSection.getInt(key + ".level"))
-                    .name(tierSection.getString(key + ".name"))
-                    .cost(tierSection.getDouble(key + ".cost"))
-                    .maxMembers(tierSection.getInt(key + ".max-members"))
-                    .vaultAmount(tierSection.getInt(key + ".vault-amount"))
-                    .mobXpMultiplier(tierSection.getDouble(key + ".mob-xp-multiplier"))
-                    .damageMultiplier(tierSection.getDouble(key + ".damage-multiplier"))
-                    .maxBankBalance(tierSection.getDouble(key + ".max-bank-balance"))
-                    .membersToRankup(tierSection.getInt(key + ".members-to-rankup"))
-                    .useBuffs(tierSection.getBoolean(key + ".use-buffs"))
-                    .permissions(tierSection.getStringList(key + ".permissions"))
-                    .build());
+    /**
+     * Get the tier bonuses of an online player
+     * @param player the player
+     * @return their modifiers, NONE if they aren't in a guild
+     */
+    public PlayerModifiers getModifiers(Player player) {
+        return modifiers.getOrDefault(player.getUniqueId(), PlayerModifiers.NONE);
+    }
+
+    /**
+     * Work out the modifiers of a player again, dropping them if the player is offline or not in a guild
+     * @param uuid the uuid of the player
+     */
+    public void refreshModifiers(UUID uuid) {
+        Guild guild = memberIndex.get(uuid);
+        if (guild == null || Bukkit.getPlayer(uuid) == null) {
+            modifiers.remove(uuid);
+            return;
         }
+        GuildTier tier = getGuildTier(guild.getTier().getLevel());
+        if (tier == null) modifiers.remove(uuid);
+        else modifiers.put(uuid, PlayerModifiers.of(tier));
+    }
 
-        Guilds.newChain().async(() -> {
-            try {
-                guilds = databaseProvider.loadGuilds();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Work out the modifiers of every member of a guild again after its tier changed
+     * @param guild the guild
+     */
+    void refreshModifiers(Guild guild) {
+        guild.getMembers().forEach(m -> refreshModifiers(m.getUuid()));
+    }
+
+    /**
+     * Work out the modifiers of every online player again
+     */
+    public void refreshAllModifiers() {
+        modifiers.clear();
+        Bukkit.getOnlinePlayers().forEach(p -> refreshModifiers(p.getUniqueId()));
+    }
+
+    /**
+     * Forget the modifiers of a player logging out
+     * @param player the player
+     */
+    public void removeModifiers(Player player) {
+        modifiers.remove(player.getUniqueId());
+    }
+
+    /**
+     * Saves the data of guilds, only writing the ones that changed since the last save.
+     * Has to be called from the main thread as it snapshots the live guilds.
+     * @return how many guilds were written, skipped and deleted
+     */
+    public GuildSaveResult saveData() throws IOException {
+        return writeSnapshot(createSnapshot());
+    }
+
+    /**
+     * Copy every changed guild and its vault contents so they can be written off the main thread.
+     * Has to be called from the main thread.
+     * @return the snapshot to write
+     */
+    public GuildSaveSnapshot createSnapshot() {
+        List<GuildSnapshot> changed = new ArrayList<>();
+        int skipped = 0;
+
+        for (Guild guild : guilds) {
+            if (!guild.isDirty()) {
+                skipped++;
+                continue;
+            }
+            // Cleared before copying so changes made during the write are picked up next time
+            guild.markClean();
+
+            List<ItemStack[]> vaults = null;
+            if (guild.getVaults() != null) {
+                vaults = new ArrayList<>(guild.getVaults().size());
+                for (int i = 0; i < guild.getVaults().size(); i++) {
+                    // Only changed vaults are copied, the rest are still up to date in their serialized form
+                    vaults.add(vaultCache.takeChanged(guild, i));
+                }
             }
-        }).sync(() -> guilds.forEach(this::createVaultCache)).sync(() -> guilds.forEach(g -> {
-            g.setTier(getGuildTier(g.getTier().getLevel()));
-            g.getMembers().forEach(m -> m.setRole(getGuildRole(m.getRole().getLevel())));
-        })).execute();
+            changed.add(new GuildSnapshot(guild, guild.copy(), vaults));
+        }
+
+        Set<UUID> deleted = new HashSet<>();
+        for (UUID id : deletedGuilds) {
+            deletedGuilds.remove(id);
+            deleted.add(id);
+        }
+
+        vaultCache.trim();
 
+        // Every change journaled so far is part of this snapshot
+        long checkpoint = journal != null && published ? journal.checkpoint() : -1;
+        return new GuildSaveSnapshot(changed, deleted, skipped, checkpoint);
     }
 
     /**
-     * Saves the data of guilds
+     * Serialize and write a snapshot to the database. Safe to call from any thread.
+     * If the write fails, everything in the snapshot is queued again for the next save.
+     * @param snapshot the snapshot to write
+     * @return how many guilds were written, skipped and deleted
      */
-    public void saveData() throws IOException {
-        guilds.forEach(this::saveVaultCache);
-        databaseProvider.saveGuilds(guilds);
+    public GuildSaveResult writeSnapshot(GuildSaveSnapshot snapshot) throws IOException {
+        int encoded = 0;
+        List<VaultWrite> vaultWrites = new ArrayList<>();
+        try {
+            for (UUID id : snapshot.getDeleted()) {
+                databaseProvider.deleteGuild(id);
+            }
+            for (GuildSnapshot entry : snapshot.getGuilds()) {
+                Guild copy = entry.getCopy();
+                if (entry.getVaults() != null) {
+                    for (int i = 0; i < entry.getVaults().size(); i++) {
+                        ItemStack[] items = entry.getVaults().get(i);
+                        String stored = copy.getVaults().get(i);
+                        // Unchanged vaults are kept as they are, only moving them off the legacy JSON format
+                        String serialized = items != null ? Serialization.serializeInventory(items.length, items, settingsManager)
+                                : Serialization.upgradeInventory(stored, settingsManager);
+                        if (serialized != stored) encoded++;
+                        if (items != null || serialized != stored) vaultWrites.add(new VaultWrite(entry.getGuild(), i, stored, serialized, items != null));
+                        copy.getVaults().set(i, serialized);
+                    }
+                }
+                databaseProvider.saveGuild(copy);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Anything that stops the write, including serialization errors, has to queue the changes again
+            snapshot.getGuilds().forEach(g -> g.getGuild().markDirty());
+            deletedGuilds.addAll(snapshot.getDeleted());
+            // The vaults were flagged clean when copied, hand their contents back so the next save has them
+            Guilds.newChain().sync(() -> snapshot.getGuilds().forEach(g -> {
+                if (g.getVaults() == null) return;
+                for (int i = 0; i < g.getVaults().size(); i++) {
+                    if (g.getVaults().get(i) != null) vaultCache.restore(g.getGuild(), i, g.getVaults().get(i));
+                }
+            })).execute();
+            throw e;
+        }
+        if (snapshot.getCheckpoint() > 0) journal.discard(snapshot.getCheckpoint());
+        // The live guilds still hold the vaults from before the save, they get what was just written
+        if (Bukkit.isPrimaryThread()) storeVaultWrites(vaultWrites);
+        else Guilds.newChain().sync(() -> storeVaultWrites(vaultWrites)).execute();
+        return new GuildSaveResult(snapshot.getGuilds().size(), snapshot.getSkipped(), snapshot.getDeleted().size(), encoded);
     }
 
+    /**
+     * Put the vaults written or upgraded by a save back into their live guilds and let the cache unload them again.
+     * Has to be called from the main thread.
+     * @param vaultWrites the vaults that were written
+     */
+    private void storeVaultWrites(List<VaultWrite> vaultWrites) {
+        for (VaultWrite write : vaultWrites) {
+            List<String> vaults = write.guild.getVaults();
+            // An upgraded vault is only stored if nothing replaced it in the meantime
+            if (vaults != null && write.index < vaults.size() && (write.changed || vaults.get(write.index) == write.stored)) {
+                vaults.set(write.index, write.serialized);
+            }
+            if (write.changed) vaultCache.saved(write.guild, write.index);
+        }
+    }
 
     /**
      * This method is used to add a Guild to the list
@@ -179,7 +412,12 @@ public class GuildHandler {
      */
     public void addGuild(@NotNull Guild guild) {
         guilds.add(guild);
-        createVaultCache(guild);
+        attachGuild(guild);
+        listIndex.add(guild);
+        // Members that are online, like the creator, have to be tracked right away rather than on their next login
+        guild.getMembers().forEach(m -> indexMember(m.getUuid(), guild));
+        guild.markDirty();
+        record(guild, JournalEntry.Type.CREATE, guild.copy());
     }
 
     /**
@@ -188,8 +426,332 @@ public class GuildHandler {
      * @param guild the guild being removed
      */
     public void removeGuild(@NotNull Guild guild) {
-        cachedVaults.remove(guild);
+        vaultCache.remove(guild);
         guilds.remove(guild);
+        listIndex.remove(guild);
+        guild.getMembers().forEach(m -> {
+            memberIndex.remove(m.getUuid(), guild);
+            unbindSession(m.getUuid(), guild);
+        });
+        // Allies may still hold the online set in their ally chat audience until they drop the guild
+        Set<Player> online = onlinePlayers.remove(guild.getId());
+        if (online != null) online.clear();
+        allyAudiences.remove(guild.getId());
+        idIndex.remove(guild.getId(), guild);
+        unindexName(guild, guild.getName());
+        if (guild.getCodes() != null) guild.getCodes().forEach(c -> unindexCode(c.getId(), guild));
+        guild.setGuildHandler(null);
+        deletedGuilds.add(guild.getId());
+        relationCache.invalidate();
+        guild.getMembers().forEach(m -> refreshModifiers(m.getUuid()));
+        record(guild, JournalEntry.Type.DELETE, null);
+    }
+
+    /**
+     * Journal a change to a guild so it survives a crash before the next save, and keep the guild list in order
+     *
+     * @param guild the guild that changed
+     * @param type the kind of change
+     * @param value the new value
+     */
+    void record(Guild guild, JournalEntry.Type type, Object value) {
+        if (journal != null) journal.record(guild, type, value);
+        switch (type) {
+            case MEMBER_JOIN:
+            case MEMBER_LEAVE:
+            case MASTER:
+            case BALANCE:
+            case RENAME:
+            case PREFIX:
+            case STATUS:
+            case TIER:
+                listingChanged(guild);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Move a guild to its new place in the guild list and drop its cached list item
+     *
+     * @param guild the guild that changed
+     */
+    void listingChanged(Guild guild) {
+        if (idIndex.get(guild.getId()) == guild) listIndex.changed(guild);
+    }
+
+    /**
+     * Link a guild to this handler and index all of its members
+     *
+     * @param guild the guild being attached
+     */
+    private void attachGuild(Guild guild) {
+        guild.setGuildHandler(this);
+        guild.getMembers().forEach(m -> memberIndex.put(m.getUuid(), guild));
+        idIndex.put(guild.getId(), guild);
+        nameIndex.putIfAbsent(nameKey(guild.getName()), guild);
+        if (guild.getCodes() != null) guild.getCodes().forEach(c -> codeIndex.putIfAbsent(c.getId(), guild));
+    }
+
+    /**
+     * Add a member to the player to guild index
+     *
+     * @param uuid the uuid of the member
+     * @param guild the guild they joined
+     */
+    void indexMember(UUID uuid, Guild guild) {
+        memberIndex.put(uuid, guild);
+        relationCache.invalidate();
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null) trackOnline(player);
+        refreshModifiers(uuid);
+    }
+
+    /**
+     * Remove a member from the player to guild index
+     *
+     * @param uuid the uuid of the member
+     * @param guild the guild they left
+     */
+    void unindexMember(UUID uuid, Guild guild) {
+        memberIndex.remove(uuid, guild);
+        relationCache.invalidate();
+        Set<Player> online = onlinePlayers.get(guild.getId());
+        if (online != null && online.removeIf(p -> p.getUniqueId().equals(uuid))) onlineChanged(guild);
+        unbindSession(uuid, guild);
+        refreshModifiers(uuid);
+    }
+
+    /**
+     * Clear the guild from the chat session of a player that is no longer in it
+     *
+     * @param uuid the uuid of the player
+     * @param guild the guild they left
+     */
+    private void unbindSession(UUID uuid, Guild guild) {
+        ChatSession session = chatSessions.get(uuid);
+        if (session != null && session.getGuild() == guild) session.bind(null, null);
+    }
+
+    /**
+     * Add a player to the online members of their guild
+     *
+     * @param player the player
+     */
+    private void trackOnline(Player player) {
+        Guild guild = memberIndex.get(player.getUniqueId());
+        ChatSession session = chatSessions.computeIfAbsent(player.getUniqueId(), k -> new ChatSession());
+        session.bind(guild, guild == null ? null : guild.getMember(player.getUniqueId()));
+        if (guild != null && onlineSet(guild.getId()).add(player)) onlineChanged(guild);
+    }
+
+    /**
+     * Move a guild on the online leaderboard after a member came online or went offline
+     *
+     * @param guild the guild
+     */
+    private void onlineChanged(Guild guild) {
+        if (idIndex.get(guild.getId()) == guild) listIndex.moved(guild, GuildOrder.ONLINE);
+    }
+
+    /**
+     * Get the set of online members of a guild, creating it if needed
+     *
+     * @param id the id of the guild
+     * @return the live set of online members
+     */
+    private Set<Player> onlineSet(UUID id) {
+        return onlinePlayers.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Work out again which online sets ally chat from a guild goes to
+     *
+     * @param guild the guild
+     */
+    private void rebuildAllyAudience(Guild guild) {
+        List<Set<Player>> audience = new ArrayList<>(guild.getAllies().size() + 1);
+        audience.add(onlineSet(guild.getId()));
+        for (UUID ally : guild.getAllies()) {
+            if (idIndex.containsKey(ally)) audience.add(onlineSet(ally));
+        }
+        allyAudiences.put(guild.getId(), Collections.unmodifiableList(audience));
+    }
+
+    /**
+     * Get everyone that should see ally chat from a guild, safe to call from the async chat thread
+     *
+     * @param guild the guild sending the message
+     * @return the live online sets of the guild and each of its allies
+     */
+    public List<Set<Player>> getAllyAudience(Guild guild) {
+        List<Set<Player>> audience = allyAudiences.get(guild.getId());
+        return audience == null ? Collections.singletonList(getOnlinePlayers(guild)) : audience;
+    }
+
+    /**
+     * Update the cached relations and ally chat audience after a guild's allies changed
+     *
+     * @param guild the guild that changed
+     */
+    void alliesChanged(Guild guild) {
+        relationCache.invalidate();
+        if (idIndex.get(guild.getId()) == guild) rebuildAllyAudience(guild);
+    }
+
+    /**
+     * Get the chat state of an online player, safe to call from the async chat thread
+     *
+     * @param player the player
+     * @return their chat session, null if they aren't tracked as online
+     */
+    public ChatSession getChatSession(Player player) {
+        return chatSessions.get(player.getUniqueId());
+    }
+
+    /**
+     * Get the chat state of an online player, starting or rebinding one if it isn't bound to their guild yet
+     *
+     * @param player the player
+     * @return their chat session
+     */
+    private ChatSession session(Player player) {
+        ChatSession session = chatSessions.get(player.getUniqueId());
+        // Bind again if the session missed the player joining a guild, otherwise their guild chat would go public
+        if (session != null && (session.getGuild() != null || memberIndex.get(player.getUniqueId()) == null)) return session;
+        trackOnline(player);
+        return chatSessions.get(player.getUniqueId());
+    }
+
+    /**
+     * Get the players spying on guild chat
+     *
+     * @return a live, read only view of the spies
+     */
+    public Set<Player> getChatSpies() {
+        return Collections.unmodifiableSet(spies);
+    }
+
+    /**
+     * Get the players spying on guild chat
+     *
+     * @return a copy of the spies
+     * @deprecated use {@link #getChatSpies()}, changes to this list aren't applied
+     */
+    @Deprecated
+    public List<Player> getSpies() {
+        return new ArrayList<>(spies);
+    }
+
+    /**
+     * Get the players in guild chat mode
+     *
+     * @return a copy of the players in guild chat mode
+     * @deprecated use {@link #checkGuildChat(Player)}, changes to this list aren't applied
+     */
+    @Deprecated
+    public List<Player> getGuildChat() {
+        return chatSessions.entrySet().stream().filter(e -> e.getValue().getMode() == ChatMode.GUILD)
+                .map(e -> Bukkit.getPlayer(e.getKey())).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the online members of a guild
+     *
+     * @param guild the guild
+     * @return a live, read only view of the online members
+     */
+    public Set<Player> getOnlinePlayers(Guild guild) {
+        Set<Player> online = onlinePlayers.get(guild.getId());
+        return online == null ? Collections.emptySet() : Collections.unmodifiableSet(online);
+    }
+
+    /**
+     * Start tracking a player as they join
+     *
+     * @param player the player joining
+     */
+    public void playerJoined(Player player) {
+        nameCache.update(player);
+        trackOnline(player);
+        refreshModifiers(player.getUniqueId());
+    }
+
+    /**
+     * Stop tracking a player as they leave
+     *
+     * @param player the player leaving
+     */
+    public void playerQuit(Player player) {
+        Guild guild = memberIndex.get(player.getUniqueId());
+        if (guild != null) {
+            Set<Player> online = onlinePlayers.get(guild.getId());
+            if (online != null && online.remove(player)) onlineChanged(guild);
+        }
+        placeholders.remove(player.getUniqueId());
+        removeModifiers(player);
+    }
+
+    /**
+     * Forget the cached relations between players after an alliance changed
+     */
+    void invalidateRelations() {
+        relationCache.invalidate();
+    }
+
+    /**
+     * Move a guild in the name index after it has been renamed
+     *
+     * @param guild the guild that was renamed
+     * @param oldName the name it had before
+     */
+    void reindexName(Guild guild, String oldName) {
+        unindexName(guild, oldName);
+        nameIndex.putIfAbsent(nameKey(guild.getName()), guild);
+    }
+
+    /**
+     * Remove a guild's name from the index, handing the key over to any other guild which shares it
+     *
+     * @param guild the guild being removed
+     * @param name the name to remove
+     */
+    private void unindexName(Guild guild, String name) {
+        if (name == null) return;
+        String key = nameKey(name);
+        if (!nameIndex.remove(key, guild)) return;
+        guilds.stream().filter(g -> g != guild && key.equals(nameKey(g.getName()))).findFirst().ifPresent(g -> nameIndex.putIfAbsent(key, g));
+    }
+
+    /**
+     * Add an invite code to the code index
+     *
+     * @param code the code being added
+     * @param guild the guild that owns it
+     */
+    void indexCode(String code, Guild guild) {
+        codeIndex.putIfAbsent(code, guild);
+    }
+
+    /**
+     * Remove an invite code from the code index
+     *
+     * @param code the code being removed
+     * @param guild the guild that owned it
+     */
+    void unindexCode(String code, Guild guild) {
+        codeIndex.remove(code, guild);
+    }
+
+    /**
+     * Get the key a guild name is indexed under
+     *
+     * @param name the name of the guild
+     * @return the name without colors and in lower case
+     */
+    private String nameKey(String name) {
+        return ACFBukkitUtil.removeColors(ACFBukkitUtil.color(name)).toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -198,7 +760,7 @@ public class GuildHandler {
      * @return the guild object with given name
      */
     public Guild getGuild(@NotNull String name) {
-        return guilds.stream().filter(guild -> ACFBukkitUtil.removeColors(guild.getName()).equals(name)).findFirst().orElse(null);
+        return nameIndex.get(nameKey(name));
     }
 
     /**
@@ -207,7 +769,7 @@ public class GuildHandler {
      * @return the guild object by player
      */
     public Guild getGuild(@NotNull OfflinePlayer p) {
-        return guilds.stream().filter(guild -> guild.getMember(p.getUniqueId()) != null).findFirst().orElse(null);
+        return memberIndex.get(p.getUniqueId());
     }
 
     /**
@@ -216,7 +778,7 @@ public class GuildHandler {
      * @return the output
      */
     public Guild getGuild(@NotNull UUID uuid) {
-        return guilds.stream().filter(guild -> guild.getId().equals(uuid)).findFirst().orElse(null);
+        return idIndex.get(uuid);
     }
 
     /**
@@ -226,7 +788,17 @@ public class GuildHandler {
      * @return the guild who the code belong to
      */
     public Guild getGuildByCode(@NotNull String code) {
-        return guilds.stream().filter(guild -> guild.hasInviteCode(code)).findFirst().orElse(null);
+        return codeIndex.get(code);
+    }
+
+    /**
+     * Check if an invite code is already used by any guild
+     *
+     * @param code the code to check
+     * @return taken or not
+     */
+    public boolean isCodeTaken(@NotNull String code) {
+        return codeIndex.containsKey(code);
     }
 
     /**
@@ -245,7 +817,7 @@ public class GuildHandler {
      * @return the tier object if found
      */
     public GuildTier getGuildTier(int level) {
-        return tiers.stream().filter(tier -> tier.getLevel() == level).findFirst().orElse(null);
+        return registries.getTier(level);
     }
 
     /**
@@ -255,7 +827,7 @@ public class GuildHandler {
      * @return the role object if found
      */
     public GuildRole getGuildRole(int level) {
-        return roles.stream().filter(guildRole -> guildRole.getLevel() == level).findFirst().orElse(null);
+        return registries.getRole(level);
     }
 
     /**
@@ -287,11 +859,7 @@ public class GuildHandler {
      * @return allies or not
      */
     public boolean isAlly(Player player, Player target) {
-        Guild pGuild = getGuild(player);
-        Guild tGuild = getGuild(target);
-        if (pGuild == null || tGuild == null)
-            return false;
-        return pGuild.getAllies().contains(tGuild.getId());
+        return getRelation(player, target) == GuildRelation.ALLY;
     }
 
     /**
@@ -301,11 +869,25 @@ public class GuildHandler {
      * @return if same guild or not
      */
     public boolean isSameGuild(Player player, Player target) {
-        Guild pGuild = getGuild(player);
-        Guild tGuild = getGuild(target);
-        if (pGuild == null || tGuild == null)
-            return false;
-        return pGuild.getId().toString().equals(tGuild.getId().toString());
+        return getRelation(player, target) == GuildRelation.SAME_GUILD;
+    }
+
+    /**
+     * Get how a player relates to another through their guilds, cached until membership or alliances change
+     * @param player the player
+     * @param target the target
+     * @return the relation between them
+     */
+    public GuildRelation getRelation(Player player, Player target) {
+        return relationCache.get(player.getUniqueId(), target.getUniqueId(), (p, t) -> {
+            Guild pGuild = memberIndex.get(p);
+            Guild tGuild = memberIndex.get(t);
+            if (pGuild == null || tGuild == null)
+                return GuildRelation.NONE;
+            if (pGuild == tGuild)
+                return GuildRelation.SAME_GUILD;
+            return pGuild.getAllies().contains(tGuild.getId()) ? GuildRelation.ALLY : GuildRelation.NONE;
+        });
     }
 
 
@@ -357,7 +939,7 @@ public class GuildHandler {
      * @return the max tier level
      */
     public int getMaxTierLevel() {
-        return tiers.size();
+        return registries.getTierCount();
     }
 
     /**
@@ -375,7 +957,7 @@ public class GuildHandler {
      * @return guild role
      */
     public GuildRole getLowestGuildRole() {
-        return roles.get(roles.size() - 1);
+        return registries.getLowestRole();
     }
 
     /**
@@ -407,44 +989,63 @@ public class GuildHandler {
     }
 
     /**
-     * Create the cache of a vault for the guild
+     * Open a guild vault, creating it and any vault before it that doesn't exist yet
      *
-     * @param guild the guild being cached
+     * @param guild the owner of the vault
+     * @param vault which vault to open
+     * @return the inventory to open, or null if the vault couldn't be read
      */
-    private void createVaultCache(Guild guild) {
-        List<Inventory> vaults = new ArrayList<>();
-        if (guild.getVaults() == null) return;
-        guild.getVaults().forEach(v -> {
-            try {
-                vaults.add(Serialization.deserializeInventory(v, settingsManager));
-            } catch (InvalidConfigurationException e) {
-                e.printStackTrace();
-            }
-        });
-        cachedVaults.put(guild, vaults);
+    public Inventory getGuildVault(Guild guild, int vault) {
+        if (guild.getVaults() == null) guild.setVaults(new ArrayList<>());
+        List<String> vaults = guild.getVaults();
+        Inventory inventory = null;
+        while (vaults.size() < vault) {
+            inventory = createNewVault(settingsManager);
+            vaults.add(Serialization.serializeInventory(inventory, settingsManager));
+            vaultCache.put(guild, vaults.size() - 1, inventory);
+            guild.markDirty();
+        }
+        if (inventory == null) inventory = vaultCache.get(guild, vault - 1);
+        return inventory;
     }
 
     /**
-     * Save the vaults of a guild
+     * Check if an inventory is a loaded guild vault
      *
-     * @param guild the guild being saved
+     * @param inventory the inventory to check
+     * @return if it is a vault
      */
-    private void saveVaultCache(Guild guild) {
-        List<String> vaults = new ArrayList<>();
-        if (guild.getVaults() == null) return;
-        cachedVaults.get(guild).forEach(v -> vaults.add(Serialization.serializeInventory(v)));
-        guild.setVaults(vaults);
+    public boolean isGuildVault(Inventory inventory) {
+        return vaultCache.isVault(inventory);
     }
 
     /**
-     * Open a guild vault
+     * Flag a vault as changed so it gets encoded on the next save
      *
-     * @param guild the owner of the vault
-     * @param vault which vault to open
-     * @return the inventory to open
+     * @param inventory the inventory of the vault
      */
-    public Inventory getGuildVault(Guild guild, int vault) {
-        return cachedVaults.get(guild).get(vault - 1);
+    public void markVaultChanged(Inventory inventory) {
+        vaultCache.markDirty(inventory);
+    }
+
+    /**
+     * Let the vault cache know a viewer closed a vault
+     *
+     * @param inventory the inventory of the vault
+     * @param remainingViewers how many viewers are left after the close
+     */
+    public void closeVault(Inventory inventory, int remainingViewers) {
+        vaultCache.close(inventory, remainingViewers);
+    }
+
+    /**
+     * Get how many vaults a guild has created
+     *
+     * @param guild the guild to check
+     * @return the amount of vaults
+     */
+    public int getVaultCount(Guild guild) {
+        return guild.getVaults() == null ? 0 : guild.getVaults().size();
     }
 
     /**
@@ -454,7 +1055,8 @@ public class GuildHandler {
      * @return if they are a spy
      */
     private boolean isSpy(Player player) {
-        return spies.contains(player);
+        ChatSession session = chatSessions.get(player.getUniqueId());
+        return session != null && session.isSpy();
     }
 
     /**
@@ -463,6 +1065,7 @@ public class GuildHandler {
      * @param player player being added
      */
     private void addSpy(CommandManager manager, Player player) {
+        session(player).setSpy(true);
         spies.add(player);
         manager.getCommandIssuer(player).sendInfo(Messages.ADMIN__SPY_ON);
     }
@@ -473,6 +1076,7 @@ public class GuildHandler {
      * @param player player being removed
      */
     public void removeSpy(CommandManager manager, Player player) {
+        session(player).setSpy(false);
         spies.remove(player);
         manager.getCommandIssuer(player).sendInfo(Messages.ADMIN__SPY_OFF);
     }
@@ -497,7 +1101,34 @@ public class GuildHandler {
      * @return if they are in the mode or not
      */
     public boolean checkGuildChat(Player player) {
-        return guildChat.contains(player);
+        ChatSession session = chatSessions.get(player.getUniqueId());
+        return session != null && session.getMode() == ChatMode.GUILD;
+    }
+
+    /**
+     * Check if a player is in ally chat mode or not
+     *
+     * @param player the player being checked
+     * @return if they are in the mode or not
+     */
+    public boolean checkAllyChat(Player player) {
+        ChatSession session = chatSessions.get(player.getUniqueId());
+        return session != null && session.getMode() == ChatMode.ALLY;
+    }
+
+    /**
+     * Handler for taking players in and out of ally chat
+     *
+     * @param player the player being toggled
+     */
+    public void toggleAllyChat(CommandManager manager, Player player) {
+        if (checkAllyChat(player)) {
+            session(player).setMode(ChatMode.PUBLIC);
+            manager.getCommandIssuer(player).sendInfo(Messages.CHAT__ALLY_DISABLED);
+        } else {
+            session(player).setMode(ChatMode.ALLY);
+            manager.getCommandIssuer(player).sendInfo(Messages.CHAT__ALLY_ENABLED);
+        }
     }
 
     /**
@@ -506,7 +1137,7 @@ public class GuildHandler {
      * @param player the player being checked
      */
     private void addGuildChat(CommandManager manager, Player player) {
-        guildChat.add(player);
+        session(player).setMode(ChatMode.GUILD);
         manager.getCommandIssuer(player).sendInfo(Messages.CHAT__ENABLED);
     }
 
@@ -516,7 +1147,7 @@ public class GuildHandler {
      * @param player the player being checked
      */
     public void removeGuildChat(CommandManager manager, Player player) {
-        guildChat.remove(player);
+        session(player).setMode(ChatMode.PUBLIC);
         manager.getCommandIssuer(player).sendInfo(Messages.CHAT__DISABLED);
     }
 
@@ -539,15 +1170,15 @@ public class GuildHandler {
      */
     public void chatLogout(Player player) {
         spies.remove(player);
-        guildChat.remove(player);
+        chatSessions.remove(player.getUniqueId());
     }
 
     /**
-     * Clear both lists
+     * Clear all chat sessions
      */
     public void chatLogout() {
         spies.clear();
-        guildChat.clear();
+        chatSessions.clear();
     }
 
     /**
@@ -579,33 +1210,31 @@ public class GuildHandler {
     /**
      * Check in a input name for the guild is proper
      * @param name the name input
-     * @param settingsManager setting manager
+     * @param settings compiled settings
      * @return valid or not
      */
-    public boolean nameCheck(String name, SettingsManager settingsManager) {
-        String regex = settingsManager.getProperty(GuildSettings.NAME_REQUIREMENTS);
-        return name.matches(regex);
+    public boolean nameCheck(String name, CompiledSettings settings) {
+        return settings.getNamePattern().matcher(name).matches();
     }
 
     /**
      * Simple method to check in a prefix is valid or not
      * @param name the prefix
-     * @param settingsManager setting manager
+     * @param settings compiled settings
      * @return valid or not
      */
-    public boolean prefixCheck(String name, SettingsManager settingsManager) {
-        String regex = settingsManager.getProperty(GuildSettings.PREFIX_REQUIREMENTS);
-        return name.matches(regex);
+    public boolean prefixCheck(String name, CompiledSettings settings) {
+        return settings.getPrefixPattern().matcher(name).matches();
     }
 
     /**
      * Check if a word is in the blacklist or not
      * @param name name to check
-     * @param settingsManager settings manager
+     * @param settings compiled settings
      * @return blacklisted or not
      */
-    public boolean blacklistCheck(String name, SettingsManager settingsManager) {
-        return settingsManager.getProperty(GuildSettings.BLACKLIST_WORDS).stream().anyMatch(s -> s.toLowerCase().contains(name));
+    public boolean blacklistCheck(String name, CompiledSettings settings) {
+        return settings.getBlacklistWords().stream().anyMatch(s -> s.contains(name));
     }
 
     /**
@@ -633,8 +1262,10 @@ public class GuildHandler {
      * @return list of online members
      */
     public List<Player> getOnlineInviters(Guild guild) {
-        List<GuildMember> members = guild.getOnlineMembers().stream().filter(m -> m.getRole().isInvite()).collect(Collectors.toList());
-        return members.stream().map(m -> Bukkit.getPlayer(m.getUuid())).collect(Collectors.toList());
+        return guild.getOnlinePlayers().stream().filter(p -> {
+            GuildMember member = guild.getMember(p.getUniqueId());
+            return member != null && member.getRole().isInvite();
+        }).collect(Collectors.toList());
     }
 
     /**
@@ -644,7 +1275,7 @@ public class GuildHandler {
      * @param player player requesting
      */
     public void pingOnlineInviters(Guild guild, CommandManager commandManager, Player player) {
-        getOnlineInviters(guild).forEach(m -> commandManager.getCommandIssuer(m).sendInfo(Messages.REQUEST__INCOMING_REQUEST, "{player}", player.getName()));
+        BroadcastUtils.broadcast(commandManager, getOnlineInviters(guild), Messages.REQUEST__INCOMING_REQUEST, "{player}", player.getName());
     }
 
     /**
@@ -753,7 +1384,7 @@ public class GuildHandler {
         guild.addMemberByCode(new GuildMember(player.getUniqueId(), getLowestGuildRole()));
 
         manager.getCommandIssuer(player).sendInfo(Messages.CODES__JOINED, "{guild}", guild.getName());
-        guild.sendMessage(manager, Messages.CODES__GUILD_MESSAGE, "{player}", player.getName(), "{creator}", Bukkit.getOfflinePlayer(code.getCreator()).getName());
+        guild.sendMessage(manager, Messages.CODES__GUILD_MESSAGE, "{player}", player.getName(), "{creator}", nameCache.getName(code.getCreator()));
     }
 
     /**
@@ -766,7 +1397,7 @@ public class GuildHandler {
         codes.forEach(c -> commandManager.getCommandIssuer(player).sendInfo(Messages.CODES__LIST_ITEM,
                 "{code}", c.getId(),
                 "{amount}", String.valueOf(c.getUses()),
-                "{creator}", Bukkit.getOfflinePlayer(c.getCreator()).getName()));
+                "{creator}", nameCache.getName(c.getCreator())));
     }
 
     /**
@@ -774,8 +1405,11 @@ public class GuildHandler {
      * @param guild the guild to check
      */
     public void removeAlliesOnDelete(Guild guild) {
-        getGuilds().forEach(g -> g.getPendingAllies().removeIf(x -> x.equals(guild.getId())));
-        getGuilds().forEach(g -> g.getAllies().removeIf(x -> x.equals(guild.getId())));
+        // Go through the guild so the removed alliance is journaled too
+        getGuilds().forEach(g -> {
+            if (g.getPendingAllies().contains(guild.getId())) g.removePendingAlly(guild);
+            if (g.getAllies().contains(guild.getId())) g.removeAlly(guild);
+        });
     }
 
     /**
@@ -784,7 +1418,9 @@ public class GuildHandler {
      * @param commandManager the command manager
      */
     public void notifyAllies(Guild guild, CommandManager commandManager) {
-        guild.getAllies().forEach(g -> getGuild(g).sendMessage(commandManager, Messages.DELETE__NOTIFY_ALLIES, "{guild}", guild.getName()));
+        List<Player> online = guild.getAllies().stream().map(this::getGuild).filter(Objects::nonNull)
+                .flatMap(g -> g.getOnlinePlayers().stream()).collect(Collectors.toList());
+        BroadcastUtils.broadcast(commandManager, online, Messages.DELETE__NOTIFY_ALLIES, "{guild}", guild.getName());
     }
 
     /**
@@ -813,7 +1449,7 @@ public class GuildHandler {
      * @return exists or not
      */
     public boolean checkGuildNames(String name) {
-        return guilds.stream().anyMatch(g -> g.getName().equalsIgnoreCase(name));
+        return nameIndex.containsKey(nameKey(name));
     }
 
     /**
@@ -822,6 +1458,15 @@ public class GuildHandler {
      * @return formatted placeholder
      */
     public String getFormattedPlaceholder(Player player) {
+        return formatPlaceholder(getGuild(player));
+    }
+
+    /**
+     * Build the formatted placeholder of a guild
+     * @param guild the guild, null for players without one
+     * @return formatted placeholder
+     */
+    private String formatPlaceholder(Guild guild) {
         String leftBracket = settingsManager.getProperty(GuildSettings.FORMAT_BRACKET_LEFT);
         String content = settingsManager.getProperty(GuildSettings.FORMAT_CONTENT);
         String noGuild = settingsManager.getProperty(GuildSettings.FORMAT_NO_GUILD);
@@ -832,10 +1477,22 @@ public class GuildHandler {
 
         String combined = sb.toString();
 
-        Guild guild = getGuild(player);
         if (guild == null) {
             return noGuild;
         }
         return ACFBukkitUtil.color(combined.replace("{name}", guild.getName()).replace("{prefix}", guild.getPrefix()));
     }
+
+    /**
+     * A vault as it was written by a save, to be stored back in its live guild
+     */
+    @AllArgsConstructor
+    private static final class VaultWrite {
+        private final Guild guild;
+        private final int index;
+        private final String stored;
+        private final String serialized;
+        // Taken from the vault cache, as opposed to only upgraded from the legacy format
+        private final boolean changed;
+    }
 }
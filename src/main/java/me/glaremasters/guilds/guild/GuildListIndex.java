@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Every guild in each of the list orders, kept sorted as guilds change instead of sorted on every look
+ */
+public final class GuildListIndex {
+
+    private final Map<GuildOrder, List<Guild>> views;
+    // Bumped whenever something shown in the list changes, so cached list items know when to rebuild
+    private final Map<UUID, Integer> revisions;
+
+    GuildListIndex() {
+        views = new EnumMap<>(GuildOrder.class);
+        for (GuildOrder order : GuildOrder.values()) {
+            views.put(order, new ArrayList<>());
+        }
+        revisions = new HashMap<>();
+    }
+
+    /**
+     * Build every view again from scratch, used when the guilds are loaded
+     * @param guilds the guilds in load order
+     */
+    synchronized void rebuild(List<Guild> guilds) {
+        views.forEach((order, view) -> {
+            view.clear();
+            view.addAll(guilds);
+            if (order.getComparator() != null) view.sort(order.getComparator());
+        });
+        revisions.clear();
+    }
+
+    /**
+     * Add a new guild to every view
+     * @param guild the guild
+     */
+    synchronized void add(Guild guild) {
+        views.forEach((order, view) -> insert(order, view, guild));
+    }
+
+    /**
+     * Remove a guild from every view
+     * @param guild the guild
+     */
+    synchronized void remove(Guild guild) {
+        views.values().forEach(view -> removeExact(view, guild));
+        revisions.remove(guild.getId());
+    }
+
+    /**
+     * Move a guild to its new place in the sorted views after it changed
+     * @param guild the guild
+     */
+    synchronized void changed(Guild guild) {
+        revisions.merge(guild.getId(), 1, Integer::sum);
+        views.forEach((order, view) -> {
+            if (order.getComparator() == null) return;
+            if (removeExact(view, guild)) insert(order, view, guild);
+        });
+    }
+
+    /**
+     * Move a guild to its new place in one view, without touching its revision since nothing listed changed
+     * @param guild the guild
+     * @param order the order it moved in
+     */
+    synchronized void moved(Guild guild, GuildOrder order) {
+        List<Guild> view = views.get(order);
+        if (removeExact(view, guild)) insert(order, view, guild);
+    }
+
+    /**
+     * Get one page of guilds in the given order
+     * @param order the order
+     * @param page the page, starting at 0
+     * @param size the amount of guilds on a page
+     * @return the guilds on the page
+     */
+    public synchronized List<Guild> getPage(GuildOrder order, int page, int size) {
+        List<Guild> view = views.get(order);
+        int from = Math.min(page * size, view.size());
+        return new ArrayList<>(view.subList(from, Math.min(from + size, view.size())));
+    }
+
+    /**
+     * Get the guild at a place in the given order
+     * @param order the order
+     * @param rank the place, starting at 1
+     * @return the guild, null if there are fewer guilds than that
+     */
+    public synchronized Guild getRanked(GuildOrder order, int rank) {
+        List<Guild> view = views.get(order);
+        return rank < 1 || rank > view.size() ? null : view.get(rank - 1);
+    }
+
+    /**
+     * Get the amount of guilds in the list
+     * @return amount of guilds
+     */
+    public synchronized int size() {
+        return views.get(GuildOrder.LOADED).size();
+    }
+
+    /**
+     * Get how many times the listed details of a guild changed
+     * @param guild the guild
+     * @return the revision of the guild
+     */
+    public synchronized int getRevision(Guild guild) {
+        return revisions.getOrDefault(guild.getId(), 0);
+    }
+
+    private static void insert(GuildOrder order, List<Guild> view, Guild guild) {
+        if (order.getComparator() == null) {
+            view.add(guild);
+            return;
+        }
+        int index = Collections.binarySearch(view, guild, order.getComparator());
+        view.add(index < 0 ? -index - 1 : index, guild);
+    }
+
+    private static boolean removeExact(List<Guild> view, Guild guild) {
+        for (int i = 0; i < view.size(); i++) {
+            if (view.get(i) == guild) {
+                view.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -47,6 +47,6 @@ public class GuildMember {
      * @return true or false
      */
     public boolean isOnline() {
-        return Bukkit.getOfflinePlayer(uuid).isOnline();
+        return Bukkit.getPlayer(uuid) != null;
     }
 }
\ No newline at end of file
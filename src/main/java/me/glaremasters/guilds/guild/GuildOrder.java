@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import java.util.Comparator;
+
+/**
+ * The orders the guild list can be shown in, every order but LOADED is also a leaderboard
+ */
+public enum GuildOrder {
+    // In the order the guilds were loaded or created
+    LOADED(null),
+    TIER(Comparator.<Guild>comparingInt(g -> g.getTier().getLevel()).reversed()),
+    MEMBERS(Comparator.<Guild>comparingInt(g -> g.getMembers().size()).reversed()),
+    BALANCE(Comparator.comparingDouble(Guild::getBalance).reversed()),
+    ONLINE(Comparator.<Guild>comparingInt(Guild::getOnlineCount).reversed());
+
+    // Ties are broken by id so every guild has exactly one place in a view
+    private final Comparator<Guild> comparator;
+
+    GuildOrder(Comparator<Guild> comparator) {
+        this.comparator = comparator == null ? null : comparator.thenComparing(Guild::getId);
+    }
+
+    Comparator<Guild> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Check if guilds are ranked in this order
+     * @return if the order is a leaderboard
+     */
+    public boolean isRanked() {
+        return comparator != null;
+    }
+
+    /**
+     * Get an order by name, ignoring case
+     * @param name the name of the order
+     * @return the order, LOADED if it doesn't exist
+     */
+    public static GuildOrder match(String name) {
+        for (GuildOrder order : values()) {
+            if (order.name().equalsIgnoreCase(name)) return order;
+        }
+        return LOADED;
+    }
+}
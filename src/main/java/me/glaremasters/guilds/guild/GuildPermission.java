@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import lombok.Getter;
+
+/**
+ * Everything a guild role can be allowed to do, each backed by a single bit of the role's permission mask
+ */
+@Getter
+public enum GuildPermission {
+
+    CHAT("chat"),
+    ALLY_CHAT("ally-chat"),
+    INVITE("invite"),
+    KICK("kick"),
+    PROMOTE("promote"),
+    DEMOTE("demote"),
+    ADD_ALLY("add-ally"),
+    REMOVE_ALLY("remove-ally"),
+    CHANGE_PREFIX("change-prefix"),
+    CHANGE_NAME("rename"),
+    CHANGE_HOME("change-home"),
+    REMOVE_GUILD("remove-guild"),
+    CHANGE_STATUS("toggle-guild"),
+    OPEN_VAULT("open-vault"),
+    TRANSFER_GUILD("transfer-guild"),
+    ACTIVATE_BUFF("activate-buff"),
+    UPGRADE_GUILD("upgrade-guild"),
+    DEPOSIT_MONEY("deposit-money"),
+    WITHDRAW_MONEY("withdraw-money"),
+    CLAIM_LAND("claim-land"),
+    UNCLAIM_LAND("unclaim-land"),
+    DESTROY("destroy"),
+    PLACE("place"),
+    INTERACT("interact"),
+    CREATE_CODE("create-code"),
+    DELETE_CODE("delete-code"),
+    SEE_CODE_REDEEMERS("see-code-redeemers"),
+    MODIFY_MOTD("modify-motd");
+
+    // Key of the permission under a role's "permissions" section in the config
+    private final String node;
+    private final long mask;
+
+    GuildPermission(String node) {
+        this.node = node;
+        this.mask = 1L << ordinal();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import lombok.Getter;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable lookup of the configured roles and tiers, indexed by level.
+ * A new instance is built whenever the config is loaded and swapped in as a whole.
+ */
+public final class GuildRegistries {
+
+    private final GuildRole[] roles;
+    private final GuildTier[] tiers;
+    @Getter private final GuildRole lowestRole;
+    @Getter private final int tierCount;
+
+    private GuildRegistries(List<GuildRole> roles, List<GuildTier> tiers) {
+        this.roles = new GuildRole[roles.stream().mapToInt(GuildRole::getLevel).max().orElse(-1) + 1];
+        roles.forEach(r -> this.roles[r.getLevel()] = r);
+        this.tiers = new GuildTier[tiers.stream().mapToInt(GuildTier::getLevel).max().orElse(-1) + 1];
+        tiers.forEach(t -> this.tiers[t.getLevel()] = t);
+        this.lowestRole = roles.isEmpty() ? null : roles.get(roles.size() - 1);
+        this.tierCount = tiers.size();
+    }
+
+    /**
+     * Build the registries from the roles and tiers sections of the config
+     * @param config the config to read
+     * @return the registries
+     */
+    public static GuildRegistries load(FileConfiguration config) {
+        List<GuildRole> roles = new ArrayList<>();
+        ConfigurationSection roleSection = config.getConfigurationSection("roles");
+        for (String s : roleSection.getKeys(false)) {
+            String path = s + ".permissions.";
+            long permissions = 0;
+            for (GuildPermission permission : GuildPermission.values()) {
+                if (roleSection.getBoolean(path + permission.getNode())) permissions |= permission.getMask();
+            }
+
+            roles.add(GuildRole.builder().name(roleSection.getString(s + ".name"))
+                    .node(roleSection.getString(s + ".permission-node"))
+                    .level(Integer.parseInt(s))
+                    .permissions(permissions)
+                    .build());
+        }
+
+        List<GuildTier> tiers = new ArrayList<>();
+        ConfigurationSection tierSection = config.getConfigurationSection("tiers.list");
+        for (String key : tierSection.getKeys(false)) {
+            tiers.add(GuildTier.builder()
+                    .level(tierSection.getInt(key + ".level"))
+                    .name(tierSection.getString(key + ".name"))
+                    .cost(tierSection.getDouble(key + ".cost"))
+                    .maxMembers(tierSection.getInt(key + ".max-members"))
+                    .vaultAmount(tierSection.getInt(key + ".vault-amount"))
+                    .mobXpMultiplier(tierSection.getDouble(key + ".mob-xp-multiplier"))
+                    .damageMultiplier(tierSection.getDouble(key + ".damage-multiplier"))
+                    .maxBankBalance(tierSection.getDouble(key + ".max-bank-balance"))
+                    .membersToRankup(tierSection.getInt(key + ".members-to-rankup"))
+                    .useBuffs(tierSection.getBoolean(key + ".use-buffs"))
+                    .permissions(tierSection.getStringList(key + ".permissions"))
+                    .build());
+        }
+
+        return new GuildRegistries(roles, tiers);
+    }
+
+    /**
+     * Get a role by its level
+     * @param level the level of the role
+     * @return the role or null if there is none at that level
+     */
+    public GuildRole getRole(int level) {
+        return level >= 0 && level < roles.length ? roles[level] : null;
+    }
+
+    /**
+     * Get a tier by its level
+     * @param level the level of the tier
+     * @return the tier or null if there is none at that level
+     */
+    public GuildTier getTier(int level) {
+        return level >= 0 && level < tiers.length ? tiers[level] : null;
+    }
+}
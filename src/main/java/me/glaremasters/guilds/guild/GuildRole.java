@@ -24,6 +24,7 @@
 
 package me.glaremasters.guilds.guild;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -41,7 +42,130 @@ public class GuildRole {
 
     private int level;
 
-    private transient boolean chat, invite, kick, promote, demote, changePrefix, changeName, changeHome, removeGuild, addAlly,
-            removeAlly, allyChat, openVault, transferGuild, changeStatus, activateBuff, upgradeGuild, depositMoney,
-            withdrawMoney, claimLand, unclaimLand, destroy, place, interact, createCode, deleteCode, seeCodeRedeemers, modifyMotd;
+    // One bit per GuildPermission
+    @Getter(AccessLevel.NONE)
+    private transient long permissions;
+
+    /**
+     * Check if the role is allowed to do something
+     * @param permission the permission to check
+     * @return if the role has it
+     */
+    public boolean has(GuildPermission permission) {
+        return (permissions & permission.getMask()) != 0;
+    }
+
+    // Shorthands for has(GuildPermission) used throughout the commands
+
+    public boolean isChat() {
+        return has(GuildPermission.CHAT);
+    }
+
+    public boolean isAllyChat() {
+        return has(GuildPermission.ALLY_CHAT);
+    }
+
+    public boolean isInvite() {
+        return has(GuildPermission.INVITE);
+    }
+
+    public boolean isKick() {
+        return has(GuildPermission.KICK);
+    }
+
+    public boolean isPromote() {
+        return has(GuildPermission.PROMOTE);
+    }
+
+    public boolean isDemote() {
+        return has(GuildPermission.DEMOTE);
+    }
+
+    public boolean isAddAlly() {
+        return has(GuildPermission.ADD_ALLY);
+    }
+
+    public boolean isRemoveAlly() {
+        return has(GuildPermission.REMOVE_ALLY);
+    }
+
+    public boolean isChangePrefix() {
+        return has(GuildPermission.CHANGE_PREFIX);
+    }
+
+    public boolean isChangeName() {
+        return has(GuildPermission.CHANGE_NAME);
+    }
+
+    public boolean isChangeHome() {
+        return has(GuildPermission.CHANGE_HOME);
+    }
+
+    public boolean isRemoveGuild() {
+        return has(GuildPermission.REMOVE_GUILD);
+    }
+
+    public boolean isChangeStatus() {
+        return has(GuildPermission.CHANGE_STATUS);
+    }
+
+    public boolean isOpenVault() {
+        return has(GuildPermission.OPEN_VAULT);
+    }
+
+    public boolean isTransferGuild() {
+        return has(GuildPermission.TRANSFER_GUILD);
+    }
+
+    public boolean isActivateBuff() {
+        return has(GuildPermission.ACTIVATE_BUFF);
+    }
+
+    public boolean isUpgradeGuild() {
+        return has(GuildPermission.UPGRADE_GUILD);
+    }
+
+    public boolean isDepositMoney() {
+        return has(GuildPermission.DEPOSIT_MONEY);
+    }
+
+    public boolean isWithdrawMoney() {
+        return has(GuildPermission.WITHDRAW_MONEY);
+    }
+
+    public boolean isClaimLand() {
+        return has(GuildPermission.CLAIM_LAND);
+    }
+
+    public boolean isUnclaimLand() {
+        return has(GuildPermission.UNCLAIM_LAND);
+    }
+
+    public boolean isDestroy() {
+        return has(GuildPermission.DESTROY);
+    }
+
+    public boolean isPlace() {
+        return has(GuildPermission.PLACE);
+    }
+
+    public boolean isInteract() {
+        return has(GuildPermission.INTERACT);
+    }
+
+    public boolean isCreateCode() {
+        return has(GuildPermission.CREATE_CODE);
+    }
+
+    public boolean isDeleteCode() {
+        return has(GuildPermission.DELETE_CODE);
+    }
+
+    public boolean isSeeCodeRedeemers() {
+        return has(GuildPermission.SEE_CODE_REDEEMERS);
+    }
+
+    public boolean isModifyMotd() {
+        return has(GuildPermission.MODIFY_MOTD);
+    }
 }
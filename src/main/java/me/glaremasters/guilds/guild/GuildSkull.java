@@ -24,17 +24,9 @@
 
 package me.glaremasters.guilds.guild;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import me.glaremasters.guilds.utils.SkullUtils;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.UUID;
-
 /**
  * Created by GlareMasters
  * Date: 2/15/2019
@@ -45,15 +37,6 @@ public class GuildSkull {
     private String serialized;
     private transient ItemStack itemStack;
 
-    /**
-     * Get the Guild Skull of a player
-     * @param player the player you're getting the skull of
-     */
-    public GuildSkull(Player player) {
-        serialized = SkullUtils.getEncoded(getTextureUrl(player.getUniqueId()));
-        itemStack = SkullUtils.getSkull(serialized);
-    }
-
     /**
      * Get the Guild Skull from a sting
      * @param texture the texture you want to use
@@ -64,28 +47,17 @@ public class GuildSkull {
     }
 
     /**
-     * Get the url of a texture
-     * @param uuid the uuid to get the texture of
-     * @return texture of uuid
-     */
-    private String getTextureUrl(UUID uuid) {
-        try {
-            URL texture = new URL("https://api.minetools.eu/profile/" + uuid.toString().replaceAll("-", ""));
-            InputStreamReader is = new InputStreamReader(texture.openStream());
-            JsonObject textureProperty = new JsonParser().parse(is).getAsJsonObject().get("decoded").getAsJsonObject().get("textures").getAsJsonObject().get("SKIN").getAsJsonObject();
-            return textureProperty.get("url").getAsString();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return "";
-        }
-    }
-
-    /**
-     * Get the skull as an item stack
-     * @return item stack
+     * Get the skull as an item stack, built once and then copied
+     * @return a copy of the skull
      */
     public ItemStack getItemStack() {
-        return itemStack;
+        // Not kept by Gson, so it's built on first use after loading
+        ItemStack built = itemStack;
+        if (built == null) {
+            built = SkullUtils.getSkull(serialized);
+            itemStack = built;
+        }
+        return built.clone();
     }
 
     /**
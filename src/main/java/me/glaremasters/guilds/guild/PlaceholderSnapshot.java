@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.bukkit.entity.Player;
+
+import java.util.Set;
+
+/**
+ * The placeholder values of a guild member, resolved once and reused until the guild changes.
+ * Never changed after being built, so it can be read from any thread.
+ */
+@Getter
+public final class PlaceholderSnapshot {
+
+    @Getter(AccessLevel.PACKAGE)
+    private final Guild guild;
+    @Getter(AccessLevel.PACKAGE)
+    private final int revision;
+    @Getter(AccessLevel.NONE)
+    private final Set<Player> online;
+
+    private final String id;
+    private final String name;
+    private final String prefix;
+    private final String master;
+    private final String status;
+    private final String memberCount;
+    private final String role;
+    private final String roleNode;
+    private final String tier;
+    private final String tierName;
+    private final String balance;
+    private final String codeAmount;
+    private final String maxMembers;
+    private final String maxBalance;
+    private final String formatted;
+
+    PlaceholderSnapshot(Guild guild, GuildMember member, Set<Player> online, String master, String formatted) {
+        this.guild = guild;
+        this.revision = guild.getRevision();
+        this.online = online;
+        this.id = guild.getId().toString();
+        this.name = guild.getName();
+        this.prefix = guild.getPrefix();
+        this.master = master;
+        this.status = guild.getStatus().name();
+        this.memberCount = String.valueOf(guild.getMembers().size());
+        this.role = member.getRole().getName();
+        this.roleNode = member.getRole().getNode();
+        this.tier = String.valueOf(guild.getTier().getLevel());
+        this.tierName = guild.getTier().getName();
+        this.balance = String.valueOf(guild.getBalance());
+        this.codeAmount = String.valueOf(guild.getCodes() == null ? 0 : guild.getCodes().size());
+        this.maxMembers = String.valueOf(guild.getTier().getMaxMembers());
+        this.maxBalance = String.valueOf(guild.getTier().getMaxBankBalance());
+        this.formatted = formatted;
+    }
+
+    /**
+     * Get the amount of online members, read live since it changes with every join and quit
+     * @return amount of online members
+     */
+    public String getMembersOnline() {
+        return String.valueOf(online.size());
+    }
+}
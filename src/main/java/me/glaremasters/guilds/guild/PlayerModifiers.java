@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The bonuses an online player gets from their guild's tier, worked out ahead of time so listeners don't have to
+ */
+@Getter
+@AllArgsConstructor
+public class PlayerModifiers {
+
+    // Players without a guild, nothing is changed for them
+    public static final PlayerModifiers NONE = new PlayerModifiers(1, 1);
+
+    private final double damageMultiplier;
+    private final double mobXpMultiplier;
+
+    /**
+     * Work out the modifiers for a member of a guild at a certain tier
+     * @param tier the tier of the guild
+     * @return the modifiers
+     */
+    public static PlayerModifiers of(GuildTier tier) {
+        return new PlayerModifiers(tier.getDamageMultiplier(), tier.getMobXpMultiplier());
+    }
+}
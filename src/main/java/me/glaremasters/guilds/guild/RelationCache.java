@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Remembers the relation between pairs of players so combat checks don't have to look up both guilds every hit.
+ * Cleared whenever guild membership or alliances change, which is rare compared to how often players hit each other.
+ */
+class RelationCache {
+
+    // Keeps a server full of players fighting each other from growing the cache forever
+    private static final int MAX_SIZE = 8192;
+
+    private final Map<Pair, GuildRelation> relations = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a relation computed from stale data isn't stored afterwards
+    private volatile int generation;
+
+    /**
+     * Get the relation of a player towards another, computing it if it isn't cached
+     * @param player the player
+     * @param target the other player
+     * @param compute how to work out the relation on a miss
+     * @return the relation
+     */
+    GuildRelation get(UUID player, UUID target, BiFunction<UUID, UUID, GuildRelation> compute) {
+        Pair key = new Pair(player, target);
+        GuildRelation relation = relations.get(key);
+        if (relation != null) return relation;
+
+        int current = generation;
+        relation = compute.apply(player, target);
+        if (relations.size() >= MAX_SIZE) relations.clear();
+        if (current == generation) relations.put(key, relation);
+        return relation;
+    }
+
+    /**
+     * Forget every cached relation
+     */
+    void invalidate() {
+        generation++;
+        relations.clear();
+    }
+
+    private static final class Pair {
+        private final UUID player;
+        private final UUID target;
+
+        private Pair(UUID player, UUID target) {
+            this.player = player;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Pair)) return false;
+            Pair pair = (Pair) o;
+            return player.equals(pair.player) && target.equals(pair.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(player, target);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.guild;
+
+import ch.jalu.configme.SettingsManager;
+import me.glaremasters.guilds.utils.Serialization;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Keeps the most recently used guild vaults as live inventories.
+ * Vaults stay serialized in their guild until first opened, and inventories nobody is looking at
+ * are serialized back into the guild once the cache grows past its size.
+ * Each vault tracks whether it was changed since it was last saved, so untouched vaults are never encoded again.
+ * Only used from the main thread.
+ */
+class VaultCache {
+
+    private final SettingsManager settingsManager;
+    private final int maxSize;
+    // Access ordered, so the first entries are the least recently used
+    private final LinkedHashMap<Key, Entry> inventories;
+    private final Map<Inventory, Entry> byInventory;
+
+    VaultCache(SettingsManager settingsManager, int maxSize) {
+        this.settingsManager = settingsManager;
+        this.maxSize = maxSize;
+        this.inventories = new LinkedHashMap<>(16, 0.75f, true);
+        this.byInventory = new IdentityHashMap<>();
+    }
+
+    /**
+     * Get the live inventory of a vault, deserializing it if it isn't cached
+     * @param guild the owner of the vault
+     * @param index the index of the vault
+     * @return the inventory, or null if the vault couldn't be read
+     */
+    Inventory get(Guild guild, int index) {
+        Key key = new Key(guild.getId(), index);
+        Entry entry = inventories.get(key);
+        if (entry != null) return entry.inventory;
+
+        Inventory inventory;
+        try {
+            inventory = Serialization.deserializeInventory(guild.getVaults().get(index), settingsManager);
+        } catch (InvalidConfigurationException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (inventory == null) return null;
+
+        put(guild, index, inventory);
+        return inventory;
+    }
+
+    /**
+     * Add a freshly created vault to the cache
+     * @param guild the owner of the vault
+     * @param index the index of the vault
+     * @param inventory the inventory of the vault
+     */
+    void put(Guild guild, int index, Inventory inventory) {
+        Entry entry = new Entry(guild, index, inventory);
+        inventories.put(new Key(guild.getId(), index), entry);
+        byInventory.put(inventory, entry);
+        trim();
+    }
+
+    /**
+     * Check if an inventory is a loaded guild vault
+     * @param inventory the inventory to check
+     * @return if it is a vault
+     */
+    boolean isVault(Inventory inventory) {
+        return inventory != null && byInventory.containsKey(inventory);
+    }
+
+    /**
+     * Flag a vault as changed, along with the guild owning it
+     * @param inventory the inventory of the vault
+     */
+    void markDirty(Inventory inventory) {
+        Entry entry = byInventory.get(inventory);
+        if (entry == null) return;
+        entry.dirty = true;
+        entry.closed = null;
+        entry.guild.markDirty();
+    }
+
+    /**
+     * Copy the contents of a changed vault once its last viewer closes it, so the save doesn't have to
+     * @param inventory the inventory being closed
+     * @param remainingViewers how many viewers are left after the close
+     */
+    void close(Inventory inventory, int remainingViewers) {
+        Entry entry = byInventory.get(inventory);
+        if (entry == null || !entry.dirty || remainingViewers > 0) return;
+        entry.closed = copyContents(inventory);
+    }
+
+    /**
+     * Take the contents of a vault for saving if it changed since the last save, clearing its flag.
+     * The vault stays loaded until {@link #saved(Guild, int)} or {@link #restore(Guild, int, ItemStack[])} is called,
+     * because the guild still holds the form from before the save.
+     * @param guild the owner of the vault
+     * @param index the index of the vault
+     * @return copied contents, or null if the stored form is still up to date
+     */
+    ItemStack[] takeChanged(Guild guild, int index) {
+        Entry entry = inventories.get(new Key(guild.getId(), index));
+        if (entry == null || !entry.dirty) return null;
+        ItemStack[] contents = entry.closed != null ? entry.closed : copyContents(entry.inventory);
+        entry.dirty = false;
+        entry.closed = null;
+        entry.saving = true;
+        return contents;
+    }
+
+    /**
+     * Let a vault be unloaded again once the contents taken for a save were written and stored back in the guild
+     * @param guild the owner of the vault
+     * @param index the index of the vault
+     */
+    void saved(Guild guild, int index) {
+        Entry entry = inventories.get(new Key(guild.getId(), index));
+        if (entry != null) entry.saving = false;
+    }
+
+    /**
+     * Hand back contents taken by a save that failed, so they are written by the next one
+     * @param guild the owner of the vault
+     * @param index the index of the vault
+     * @param contents the contents that failed to save
+     */
+    void restore(Guild guild, int index, ItemStack[] contents) {
+        Entry entry = inventories.get(new Key(guild.getId(), index));
+        if (entry != null) {
+            // Anything changed since is newer than these contents and already flagged
+            entry.dirty = true;
+            entry.saving = false;
+        } else if (guild.getVaults() != null && index < guild.getVaults().size()) {
+            guild.getVaults().set(index, Serialization.serializeInventory(contents.length, contents, settingsManager));
+        }
+        guild.markDirty();
+    }
+
+    /**
+     * Drop every vault of a guild without writing it back
+     * @param guild the guild being removed
+     */
+    void remove(Guild guild) {
+        Iterator<Entry> iterator = inventories.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.guild != guild) continue;
+            byInventory.remove(entry.inventory);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Unload the least recently used vaults until the cache fits its size again.
+     * Changed vaults are serialized back into their guild first, vaults that somebody has open
+     * or whose saved form isn't stored back in the guild yet are kept.
+     */
+    void trim() {
+        Iterator<Entry> iterator = inventories.values().iterator();
+        while (inventories.size() > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.saving || !entry.inventory.getViewers().isEmpty()) continue;
+            List<String> vaults = entry.guild.getVaults();
+            if (entry.dirty && vaults != null && entry.index < vaults.size()) {
+                ItemStack[] contents = entry.closed != null ? entry.closed : entry.inventory.getContents();
+                vaults.set(entry.index, Serialization.serializeInventory(contents.length, contents, settingsManager));
+            }
+            byInventory.remove(entry.inventory);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Copy the contents of an inventory so it can be serialized off the main thread
+     * @param inventory the inventory to copy
+     * @return copied items
+     */
+    private ItemStack[] copyContents(Inventory inventory) {
+        ItemStack[] items = inventory.getContents();
+        ItemStack[] copy = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i] == null ? null : items[i].clone();
+        }
+        return copy;
+    }
+
+    private static final class Key {
+        private final UUID guild;
+        private final int index;
+
+        private Key(UUID guild, int index) {
+            this.guild = guild;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return index == key.index && guild.equals(key.guild);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(guild, index);
+        }
+    }
+
+    private static final class Entry {
+        private final Guild guild;
+        private final int index;
+        private final Inventory inventory;
+        private boolean dirty;
+        // Taken by a save whose result isn't stored back in the guild yet
+        private boolean saving;
+        // Contents copied when the last viewer closed the vault, reused by the next save
+        private ItemStack[] closed;
+
+        private Entry(Guild guild, int index, Inventory inventory) {
+            this.guild = guild;
+            this.index = index;
+            this.inventory = inventory;
+        }
+    }
+}
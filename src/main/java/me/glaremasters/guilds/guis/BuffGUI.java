@@ -30,8 +30,10 @@ import co.aikar.commands.CommandManager;
 import com.github.stefvanschie.inventoryframework.Gui;
 import com.github.stefvanschie.inventoryframework.GuiItem;
 import com.github.stefvanschie.inventoryframework.pane.StaticPane;
-import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
+import me.glaremasters.guilds.buffs.BuffCommand;
+import me.glaremasters.guilds.buffs.BuffRegistry;
+import me.glaremasters.guilds.buffs.GuildBuff;
 import me.glaremasters.guilds.configuration.sections.CooldownSettings;
 import me.glaremasters.guilds.configuration.sections.GuildBuffSettings;
 import me.glaremasters.guilds.cooldowns.Cooldown;
@@ -41,21 +43,16 @@ import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.messages.Messages;
 import me.glaremasters.guilds.utils.EconomyUtils;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * Created by Glare
  * Date: 4/12/2019
  * Time: 10:01 PM
  */
-@AllArgsConstructor
 public class BuffGUI {
 
     private Guilds guilds;
@@ -63,169 +60,39 @@ public class BuffGUI {
     private GuildHandler guildHandler;
     private CommandManager commandManager;
     private CooldownHandler cooldownHandler;
+    private String title;
+    // Swapped as a whole on reload, so a GUI is always built from one version of the buffs
+    private volatile BuffRegistry registry;
+
+    public BuffGUI(Guilds guilds, SettingsManager settingsManager, GuildHandler guildHandler, CommandManager commandManager, CooldownHandler cooldownHandler) {
+        this.guilds = guilds;
+        this.settingsManager = settingsManager;
+        this.guildHandler = guildHandler;
+        this.commandManager = commandManager;
+        this.cooldownHandler = cooldownHandler;
+        compile();
+    }
+
+    /**
+     * Read every buff from the config, done on load and on reload
+     */
+    public void compile() {
+        title = ACFBukkitUtil.color(settingsManager.getProperty(GuildBuffSettings.GUILD_BUFF_NAME));
+        registry = BuffRegistry.load(guilds.getConfig(), guilds.getLogger());
+    }
 
     public Gui getBuffGUI() {
 
+        BuffRegistry registry = this.registry;
 
-        Gui gui = new Gui(guilds, 1, ACFBukkitUtil.color(settingsManager.getProperty(GuildBuffSettings.GUILD_BUFF_NAME)));
+        Gui gui = new Gui(guilds, registry.getRows(), title);
 
         // Prevent players from being able to items into the GUIs
         gui.setOnGlobalClick(event -> event.setCancelled(true));
 
-        StaticPane pane = new StaticPane(0, 0, 9, 1);
+        StaticPane pane = new StaticPane(0, 0, 9, registry.getRows());
 
-        // Haste
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.HASTE_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_TIME),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_ICON),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_NAME),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.HASTE_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.HASTE_GUILD_COMMANDS
-                ));
-        // Speed
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.SPEED_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_TIME),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_ICON),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_NAME),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.SPEED_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.SPEED_GUILD_COMMANDS
-                ));
-        // Fire
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.FR_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.FR_TIME),
-                settingsManager.getProperty(GuildBuffSettings.FR_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.FR_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.FR_ICON),
-                settingsManager.getProperty(GuildBuffSettings.FR_NAME),
-                settingsManager.getProperty(GuildBuffSettings.FR_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.FR_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.FR_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.FR_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.FR_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.FR_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.FR_GUILD_COMMANDS
-                ));
-        // Night
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.NV_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.NV_TIME),
-                settingsManager.getProperty(GuildBuffSettings.NV_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.NV_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.NV_ICON),
-                settingsManager.getProperty(GuildBuffSettings.NV_NAME),
-                settingsManager.getProperty(GuildBuffSettings.NV_LORE),
-                pane, settingsManager.getProperty(GuildBuffSettings.NV_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.NV_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.NV_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.NV_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.NV_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.NV_GUILD_COMMANDS
-                ));
-        // Invisibility
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_TIME),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_ICON),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_NAME),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.INVISIBILITY_GUILD_COMMANDS
-                ));
-        // Strength
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_TIME),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_ICON),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_NAME),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.STRENGTH_GUILD_COMMANDS
-                ));
-        // Jump
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.JUMP_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_TIME),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_ICON),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_NAME),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.JUMP_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.JUMP_GUILD_COMMANDS
-                ));
-        // Water
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.WB_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.WB_TIME),
-                settingsManager.getProperty(GuildBuffSettings.WB_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.WB_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.WB_ICON),
-                settingsManager.getProperty(GuildBuffSettings.WB_NAME),
-                settingsManager.getProperty(GuildBuffSettings.WB_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.WB_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.WB_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.WB_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.WB_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.WB_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.WB_GUILD_COMMANDS
-                ));
-        // Regen
-        setBuffItem(commandManager,
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_TYPE),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_TIME),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_AMPLIFIER),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_PRICE),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_ICON),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_NAME),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_LORE),
-                pane,
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_SLOT),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_DISPLAY),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_CLICKER_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_CLICKER_COMMANDS),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_GUILD_COMMAND_CHECK),
-                settingsManager.getProperty(GuildBuffSettings.REGENERATION_GUILD_COMMANDS
-                ));
+        registry.getBuffs().forEach(buff -> setBuffItem(commandManager, buff, pane));
 
         gui.addPane(pane);
 
@@ -235,21 +102,11 @@ public class BuffGUI {
     /**
      * Set the buff item to the GUI
      * @param commandManager command manage
-     * @param type the type of potion
-     * @param length the length of the potion
-     * @param amplifier the strength of the potion
-     * @param cost the cost of the potion
-     * @param icon the icon of the potion
-     * @param name the name of the potion
-     * @param lore the lore of the potion
+     * @param buff the buff to add
      * @param pane the pane to add to
-     * @param x The location to add to
-     * @param check check if this should be displayed
      */
-    private void setBuffItem(CommandManager commandManager, String type, int length, int amplifier,
-                             double cost, String icon, String name, List<String> lore, StaticPane pane, int x,
-                             boolean check, boolean clickerCheck, List<String> clickerCommands, boolean guildCheck, List<String> guildCommands) {
-        GuiItem buffItem = new GuiItem(new ItemStack(Material.valueOf(icon)), event -> {
+    private void setBuffItem(CommandManager commandManager, GuildBuff buff, StaticPane pane) {
+        GuiItem buffItem = new GuiItem(buff.createIcon(), event -> {
             event.setCancelled(true);
             Player player = (Player) event.getWhoClicked();
             if (guildHandler.getGuild(player) == null) return;
@@ -258,55 +115,39 @@ public class BuffGUI {
                 commandManager.getCommandIssuer(player).sendInfo(Messages.ERROR__BUFF_COOLDOWN, "{amount}", String.valueOf(cooldownHandler.getRemaining(Cooldown.TYPES.Buffs.name(), guild.getId())));
                 return;
             }
-            if (!EconomyUtils.hasEnough(guild.getBalance(), cost)) {
+            if (!EconomyUtils.hasEnough(guild.getBalance(), buff.getPrice())) {
                 commandManager.getCommandIssuer(player).sendInfo(Messages.BANK__NOT_ENOUGH_BANK);
                 return;
             }
             if (!settingsManager.getProperty(GuildBuffSettings.BUFF_STACKING) && !player.getActivePotionEffects().isEmpty()) return;
-            guild.setBalance(guild.getBalance() - cost);
-            guild.addPotion(type, (length * 20), amplifier);
+            guild.setBalance(guild.getBalance() - buff.getPrice());
+            guild.addPotion(buff.getEffect());
             cooldownHandler.addCooldown(guild, Cooldown.TYPES.Buffs.name(), settingsManager.getProperty(CooldownSettings.BUFF), TimeUnit.SECONDS);
 
-            executeClickerCommands(clickerCheck, clickerCommands, player);
-            executeGuildCommands(guildCheck, guildCommands, guild);
+            executeClickerCommands(buff.getClickerCommands(), player);
+            executeGuildCommands(buff.getGuildCommands(), guild);
         });
-        ItemMeta meta = buffItem.getItem().getItemMeta();
-        meta.setDisplayName(ACFBukkitUtil.color(name));
-        meta.setLore(lore.stream().map(ACFBukkitUtil::color).collect(Collectors.toList()));
-        buffItem.getItem().setItemMeta(meta);
-        if (check)
-            pane.addItem(buffItem, x, 0);
+        pane.addItem(buffItem, buff.getSlot() % 9, buff.getSlot() / 9);
     }
 
     /**
      * Execute a list of commands on the player who bought the buff
-     * @param check if this can run or not
-     * @param commands the commands to run
+     * @param commands the commands to run, empty if they aren't enabled
      * @param player the player to execute them on
      */
-    private void executeClickerCommands(boolean check, List<String> commands, Player player) {
-        if (check) {
-            commands.forEach(c -> {
-                String update = c.replace("{player}", player.getName());
-                Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(), update);
-            });
-        }
+    private void executeClickerCommands(List<BuffCommand> commands, Player player) {
+        commands.forEach(c -> Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(), c.fill(player.getName())));
     }
 
     /**
      * Execute a list of commands on all players online in a guild
-     * @param check if this can run or not
-     * @param commands the commands to run
+     * @param commands the commands to run, empty if they aren't enabled
      * @param guild the guild of players to run on
      */
-    private void executeGuildCommands(boolean check, List<String> commands, Guild guild) {
-        if (check) {
-            guild.getOnlineAsPlayers().forEach(p -> commands.forEach(c -> {
-                String update = c.replace("{player}", p.getName());
-                Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(), update);
-            }));
-        }
+    private void executeGuildCommands(List<BuffCommand> commands, Guild guild) {
+        if (commands.isEmpty()) return;
+        guild.getOnlineAsPlayers().forEach(p -> commands.forEach(c ->
+                Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(), c.fill(p.getName()))));
     }
 
-
 }
@@ -64,4 +64,15 @@ public class GUIHandler {
         vaultGUI = new VaultGUI(this.guilds, this.settingsManager, this.guildHandler);
     }
 
+    /**
+     * Build every GUI from the config again after it was reloaded
+     */
+    public void reload() {
+        buffGUI.compile();
+        listGUI.compile();
+        infoGUI.compile();
+        infoMembersGUI.compile();
+        vaultGUI.compile();
+    }
+
 }
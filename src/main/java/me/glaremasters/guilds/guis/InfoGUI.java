@@ -25,13 +25,13 @@
 package me.glaremasters.guilds.guis;
 
 import ch.jalu.configme.SettingsManager;
+import ch.jalu.configme.properties.Property;
 import co.aikar.commands.ACFBukkitUtil;
 import co.aikar.commands.CommandManager;
 import com.github.stefvanschie.inventoryframework.Gui;
 import com.github.stefvanschie.inventoryframework.GuiItem;
 import com.github.stefvanschie.inventoryframework.pane.OutlinePane;
 import com.github.stefvanschie.inventoryframework.pane.Pane;
-import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
 import me.glaremasters.guilds.configuration.sections.CooldownSettings;
 import me.glaremasters.guilds.configuration.sections.GuildInfoSettings;
@@ -48,28 +48,43 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * Created by Glare
  * Date: 5/11/2019
  * Time: 11:17 PM
  */
-@AllArgsConstructor
 public class InfoGUI {
 
     private Guilds guilds;
     private SettingsManager settingsManager;
     private GuildHandler guildHandler;
     private CooldownHandler cooldownHandler;
+    private Layout layout;
+
+    public InfoGUI(Guilds guilds, SettingsManager settingsManager, GuildHandler guildHandler, CooldownHandler cooldownHandler) {
+        this.guilds = guilds;
+        this.settingsManager = settingsManager;
+        this.guildHandler = guildHandler;
+        this.cooldownHandler = cooldownHandler;
+        compile();
+    }
+
+    /**
+     * Build the items of the GUI from the config, done on load and on reload
+     */
+    public void compile() {
+        layout = new Layout(settingsManager);
+    }
 
     public Gui getInfoGUI(Guild guild, Player player, CommandManager commandManager) {
+        Layout layout = this.layout;
 
         // Create the GUI with the desired name from the config
-        Gui gui = new Gui(guilds, 3, ACFBukkitUtil.color(settingsManager.getProperty(GuildInfoSettings.GUI_NAME).replace("{name}",
-                guild.getName()).replace("{prefix}", guild.getPrefix())));
+        Gui gui = new Gui(guilds, 3, ItemTemplate.fill(layout.title, "{name}", guild.getName(), "{prefix}", guild.getPrefix()));
 
         // Prevent players from being able to items into the GUIs
         gui.setOnGlobalClick(event -> event.setCancelled(true));
@@ -87,16 +102,16 @@ public class InfoGUI {
         OutlinePane motdPane = new OutlinePane(4, 0, 1, 1, Pane.Priority.HIGH);
 
         // Add the items to the background pane
-        createBackgroundItems(backgroundPane);
+        createBackgroundItems(backgroundPane, layout);
 
         // Add the items to the foreground pane
-        createForegroundItems(foregroundPane, guild, player, commandManager);
+        createForegroundItems(foregroundPane, layout, guild, player, commandManager);
 
         // Add the vault item to the vault pane
-        createVaultItem(vaultPane, guild, player, commandManager);
+        createVaultItem(vaultPane, layout, guild, player);
 
         // Add the motd item to the info pane
-        createMotdItem(motdPane, guild);
+        createMotdItem(motdPane, layout, guild);
 
         // Add the glass panes to the main GUI background pane
         gui.addPane(backgroundPane);
@@ -117,54 +132,43 @@ public class InfoGUI {
     /**
      * Create the background panes
      * @param pane the pane to add to
+     * @param layout the compiled items
      */
-    private void createBackgroundItems(OutlinePane pane) {
-        // Start the itembuilder with stained glass
-        ItemBuilder builder = new ItemBuilder(new ItemStack(Material.STAINED_GLASS_PANE, 1, (byte) 7));
-        // Set the name to be empty
-        builder.setName(ACFBukkitUtil.color("&r"));
+    private void createBackgroundItems(OutlinePane pane, Layout layout) {
         // Loop through 27 (three rows)
         for (int i = 0; i < 27; i++) {
             // Add the pane item to the GUI and cancel the click event on it
-            pane.addItem(new GuiItem(builder.build(), event -> event.setCancelled(true)));
+            pane.addItem(new GuiItem(layout.background.clone(), event -> event.setCancelled(true)));
         }
     }
 
     /**
      * Create the regular items that will be on the GUI
      * @param pane the pane to be added to
+     * @param layout the compiled items
      * @param guild the guild of the player
      */
-    private void createForegroundItems(OutlinePane pane, Guild guild, Player player, CommandManager commandManager) {
+    private void createForegroundItems(OutlinePane pane, Layout layout, Guild guild, Player player, CommandManager commandManager) {
 
         // Create an easy way to access the guild tier
         GuildTier tier = guildHandler.getGuildTier(guild.getTier().getLevel());
 
         // Add the tier button to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.TIER_DISPLAY)) {
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.TIER_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.TIER_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.TIER_LORE).stream().map(l ->
-                            l.replace("{tier}", tier.getName())).collect(Collectors.toList())),
+        if (layout.tier != null) {
+            pane.addItem(new GuiItem(layout.tier.build("{tier}", tier.getName()),
                     event -> event.setCancelled(true)));
         }
         // Add the bank button to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.BANK_DISPLAY)) {
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.BANK_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.BANK_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.BANK_LORE).stream().map(l ->
-                            l.replace("{current}", String.valueOf(guild.getBalance())).replace("{max}",
-                                    String.valueOf(tier.getMaxBankBalance()))).collect(Collectors.toList())),
+        if (layout.bank != null) {
+            pane.addItem(new GuiItem(layout.bank.build("{current}", String.valueOf(guild.getBalance()),
+                    "{max}", String.valueOf(tier.getMaxBankBalance())),
                     event -> event.setCancelled(true)));
         }
         // Add the members button to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.MEMBERS_DISPLAY)) {
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.MEMBERS_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.MEMBERS_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.MEMBERS_LORE).stream().map(l ->
-                            l.replace("{current}", String.valueOf(guild.getMembers().size()))
-                                    .replace("{max}", String.valueOf(tier.getMaxMembers()))
-                                    .replace("{online}", String.valueOf(guild.getOnlineMembers().size()))).collect(Collectors.toList())),
+        if (layout.members != null) {
+            pane.addItem(new GuiItem(layout.members.build("{current}", String.valueOf(guild.getMembers().size()),
+                    "{max}", String.valueOf(tier.getMaxMembers()),
+                    "{online}", String.valueOf(guild.getOnlineCount())),
 
                     event -> {
                         // Cancel the event
@@ -173,40 +177,24 @@ public class InfoGUI {
                         guilds.getGuiHandler().getInfoMembersGUI().getInfoMembersGUI(guild).show(event.getWhoClicked());
                     }));
         }
-        // Add the status button to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.STATUS_DISPLAY)) {
-            boolean status = guild.isPrivate();
-            String material;
-            String statusString;
-            if (status) {
-                material = settingsManager.getProperty(GuildInfoSettings.STATUS_MATERIAL_PRIVATE);
-                statusString = settingsManager.getProperty(GuildInfoSettings.STATUS_PRIVATE);
-            } else {
-                material = settingsManager.getProperty(GuildInfoSettings.STATUS_MATERIAL_PUBLIC);
-                statusString = settingsManager.getProperty(GuildInfoSettings.STATUS_PUBLIC);
-            }
-            pane.addItem(new GuiItem(easyItem(material,
-                    settingsManager.getProperty(GuildInfoSettings.STATUS_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.STATUS_LORE).stream().map(l ->
-                            l.replace("{status}", statusString)).collect(Collectors.toList())),
+        // Add the status button to the GUI, the status text is already part of each template
+        if (layout.statusPrivate != null) {
+            pane.addItem(new GuiItem(guild.isPrivate() ? layout.statusPrivate.build() : layout.statusPublic.build(),
                     event -> event.setCancelled(true)));
         }
-        if (settingsManager.getProperty(GuildInfoSettings.HOME_DISPLAY)) {
+        if (layout.home != null) {
             // Create a variable for the home
             String home;
             // Check if the home is null or not
             if (guild.getHome() == null) {
                 // If null, take the empty string
-                home = settingsManager.getProperty(GuildInfoSettings.HOME_EMPTY);
+                home = layout.homeEmpty;
             } else {
                 // If not, list the location
                 home = ACFBukkitUtil.blockLocationToString(guild.getHome().getAsLocation());
             }
             // Add the home button to the GUI
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.HOME_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.HOME_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.HOME_LORE).stream().map(l ->
-                            l.replace("{coords}", home)).collect(Collectors.toList())),
+            pane.addItem(new GuiItem(layout.home.build("{coords}", home),
                     event -> {
                         event.setCancelled(true);
                         if (cooldownHandler.hasCooldown(Cooldown.TYPES.Home.name(), player.getUniqueId())) {
@@ -247,14 +235,13 @@ public class InfoGUI {
     /**
      * Create the vault item
      * @param pane the pane to be added to
+     * @param layout the compiled items
      * @param guild the guild of the player
      */
-    private void createVaultItem(OutlinePane pane, Guild guild, Player player, CommandManager commandManager) {
+    private void createVaultItem(OutlinePane pane, Layout layout, Guild guild, Player player) {
         // Add the vault item to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.VAULT_DISPLAY)) {
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.VAULT_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.VAULT_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.VAULT_LORE)),
+        if (layout.vault != null) {
+            pane.addItem(new GuiItem(layout.vault.build(),
                     event -> {
                         // Cancel the event
                         event.setCancelled(true);
@@ -270,37 +257,61 @@ public class InfoGUI {
     /**
      * Create the motd itmestack for the GUI
      * @param pane the pane to add it to
+     * @param layout the compiled items
      * @param guild the guild that you're getting the motd of
      */
-    private void createMotdItem(OutlinePane pane, Guild guild) {
+    private void createMotdItem(OutlinePane pane, Layout layout, Guild guild) {
         // Add the MOTD item to the GUI
-        if (settingsManager.getProperty(GuildInfoSettings.MOTD_DISPLAY)) {
+        if (layout.motd != null) {
             String motd = guild.getMotd() == null ? "" : guild.getMotd();
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoSettings.MOTD_MATERIAL),
-                    settingsManager.getProperty(GuildInfoSettings.MOTD_NAME),
-                    settingsManager.getProperty(GuildInfoSettings.MOTD_LORE).stream().map(l -> l.replace("{motd}", motd)).collect(Collectors.toList())),
+            pane.addItem(new GuiItem(layout.motd.build("{motd}", motd),
                     event -> event.setCancelled(true)));
         }
     }
 
     /**
-     * Easily create an item for the GUI
-     * @param material the material of the item
-     * @param name the name of the item
-     * @param lore the lore of the item
-     * @return created itemstack
+     * Every item of the GUI as read from the config, items that aren't displayed are null
      */
-    private ItemStack easyItem(String material, String name, List<String> lore) {
-        // Start the itembuilder
-        ItemBuilder builder = new ItemBuilder(Material.valueOf(material));
-        // Sets the name of the item
-        builder.setName(ACFBukkitUtil.color(name));
-        // Sets the lore of the item
-        builder.setLore(lore.stream().map(ACFBukkitUtil::color).collect(Collectors.toList()));
-        // Hide attributes
-        builder.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
-        // Return the created item
-        return builder.build();
+    private static final class Layout {
+        private final String title;
+        private final ItemStack background;
+        private final ItemTemplate tier;
+        private final ItemTemplate bank;
+        private final ItemTemplate members;
+        private final ItemTemplate statusPublic;
+        private final ItemTemplate statusPrivate;
+        private final ItemTemplate home;
+        private final String homeEmpty;
+        private final ItemTemplate vault;
+        private final ItemTemplate motd;
+
+        private Layout(SettingsManager settings) {
+            title = ACFBukkitUtil.color(settings.getProperty(GuildInfoSettings.GUI_NAME));
+            background = new ItemBuilder(new ItemStack(Material.STAINED_GLASS_PANE, 1, (byte) 7)).setName(ACFBukkitUtil.color("&r")).build();
+            tier = template(settings, GuildInfoSettings.TIER_DISPLAY, GuildInfoSettings.TIER_MATERIAL, GuildInfoSettings.TIER_NAME, GuildInfoSettings.TIER_LORE);
+            bank = template(settings, GuildInfoSettings.BANK_DISPLAY, GuildInfoSettings.BANK_MATERIAL, GuildInfoSettings.BANK_NAME, GuildInfoSettings.BANK_LORE);
+            members = template(settings, GuildInfoSettings.MEMBERS_DISPLAY, GuildInfoSettings.MEMBERS_MATERIAL, GuildInfoSettings.MEMBERS_NAME, GuildInfoSettings.MEMBERS_LORE);
+            statusPublic = statusTemplate(settings, GuildInfoSettings.STATUS_MATERIAL_PUBLIC, GuildInfoSettings.STATUS_PUBLIC);
+            statusPrivate = statusTemplate(settings, GuildInfoSettings.STATUS_MATERIAL_PRIVATE, GuildInfoSettings.STATUS_PRIVATE);
+            home = template(settings, GuildInfoSettings.HOME_DISPLAY, GuildInfoSettings.HOME_MATERIAL, GuildInfoSettings.HOME_NAME, GuildInfoSettings.HOME_LORE);
+            homeEmpty = settings.getProperty(GuildInfoSettings.HOME_EMPTY);
+            vault = template(settings, GuildInfoSettings.VAULT_DISPLAY, GuildInfoSettings.VAULT_MATERIAL, GuildInfoSettings.VAULT_NAME, GuildInfoSettings.VAULT_LORE);
+            motd = template(settings, GuildInfoSettings.MOTD_DISPLAY, GuildInfoSettings.MOTD_MATERIAL, GuildInfoSettings.MOTD_NAME, GuildInfoSettings.MOTD_LORE);
+        }
+
+        private static ItemTemplate template(SettingsManager settings, Property<Boolean> display, Property<String> material,
+                                             Property<String> name, Property<List<String>> lore) {
+            if (!settings.getProperty(display)) return null;
+            return ItemTemplate.of(settings.getProperty(material), settings.getProperty(name), settings.getProperty(lore), ItemFlag.HIDE_ATTRIBUTES);
+        }
+
+        private static ItemTemplate statusTemplate(SettingsManager settings, Property<String> material, Property<String> status) {
+            if (!settings.getProperty(GuildInfoSettings.STATUS_DISPLAY)) return null;
+            String text = settings.getProperty(status);
+            List<String> lore = new ArrayList<>();
+            settings.getProperty(GuildInfoSettings.STATUS_LORE).forEach(l -> lore.add(l.replace("{status}", text)));
+            return ItemTemplate.of(settings.getProperty(material), settings.getProperty(GuildInfoSettings.STATUS_NAME), lore, ItemFlag.HIDE_ATTRIBUTES);
+        }
     }
 
 }
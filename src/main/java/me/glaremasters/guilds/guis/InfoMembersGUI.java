@@ -30,39 +30,51 @@ import com.github.stefvanschie.inventoryframework.Gui;
 import com.github.stefvanschie.inventoryframework.GuiItem;
 import com.github.stefvanschie.inventoryframework.pane.OutlinePane;
 import com.github.stefvanschie.inventoryframework.pane.Pane;
-import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
 import me.glaremasters.guilds.configuration.sections.GuildInfoMemberSettings;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.guild.GuildMember;
 import me.glaremasters.guilds.guild.GuildRole;
-import me.glaremasters.guilds.utils.ItemBuilder;
-import org.bukkit.Bukkit;
-import org.bukkit.Material;
-import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Created by Glare
  * Date: 5/12/2019
  * Time: 1:57 PM
  */
-@AllArgsConstructor
 public class InfoMembersGUI {
 
     private Guilds guilds;
     private SettingsManager settingsManager;
     private GuildHandler guildHandler;
+    private String title;
+    private ItemTemplate online;
+    private ItemTemplate offline;
+
+    public InfoMembersGUI(Guilds guilds, SettingsManager settingsManager, GuildHandler guildHandler) {
+        this.guilds = guilds;
+        this.settingsManager = settingsManager;
+        this.guildHandler = guildHandler;
+        compile();
+    }
+
+    /**
+     * Build the items of the GUI from the config, done on load and on reload
+     */
+    public void compile() {
+        title = ACFBukkitUtil.color(settingsManager.getProperty(GuildInfoMemberSettings.GUI_NAME));
+        online = memberTemplate(settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_ONLINE));
+        offline = memberTemplate(settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_OFFLINE));
+    }
 
     public Gui getInfoMembersGUI(Guild guild) {
 
         // Create the GUI with the desired name from the config
-        Gui gui = new Gui(guilds, 6, ACFBukkitUtil.color(settingsManager.getProperty(GuildInfoMemberSettings.GUI_NAME).replace("{name}",
-                guild.getName())));
+        Gui gui = new Gui(guilds, 6, ItemTemplate.fill(title, "{name}", guild.getName()));
 
         // Prevent players from being able to items into the GUIs
         gui.setOnGlobalClick(event -> event.setCancelled(true));
@@ -92,50 +104,30 @@ public class InfoMembersGUI {
 
         members.forEach(m -> {
 
-            // Create a variable for the status
-            String status;
-
             // Create a variable for the role
             GuildRole role = guildHandler.getGuildRole(m.getRole().getLevel());
 
             // Create a variable for the name of the player
-            String name = Bukkit.getOfflinePlayer(m.getUuid()).getName();
-
-            // Check if they are online
-            if (m.isOnline()) {
-                // Use the online string
-                status = settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_ONLINE);
-            } else {
-                // Use the offline string
-                status = settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_OFFLINE);
-            }
-
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_MATERIAL),
-                    settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_NAME).replace("{player}", name),
-                    settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_LORE).stream().map(l ->
-                            l.replace("{name}", name)
-                                    .replace("{role}", role.getName())
-                                    .replace("{status}", status)).collect(Collectors.toList())),
+            String name = guildHandler.getNameCache().getName(m.getUuid());
+
+            // The status is already part of each template
+            ItemTemplate template = m.isOnline() ? online : offline;
+
+            pane.addItem(new GuiItem(template.build("{player}", name, "{name}", name, "{role}", role.getName()),
                     event -> event.setCancelled(true)));
         });
     }
 
     /**
-     * Easily create an item for the GUI
-     * @param material the material of the item
-     * @param name the name of the item
-     * @param lore the lore of the item
-     * @return created itemstack
+     * Compile the member item with its status filled in
+     * @param status the status text
+     * @return the template
      */
-    private ItemStack easyItem(String material, String name, List<String> lore) {
-        // Start the itembuilder
-        ItemBuilder builder = new ItemBuilder(Material.valueOf(material));
-        // Sets the name of the item
-        builder.setName(ACFBukkitUtil.color(name));
-        // Sets the lore of the item
-        builder.setLore(lore.stream().map(ACFBukkitUtil::color).collect(Collectors.toList()));
-        // Return the created item
-        return builder.build();
+    private ItemTemplate memberTemplate(String status) {
+        List<String> lore = new ArrayList<>();
+        settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_LORE).forEach(l -> lore.add(l.replace("{status}", status)));
+        return ItemTemplate.of(settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_MATERIAL),
+                settingsManager.getProperty(GuildInfoMemberSettings.MEMBERS_NAME), lore);
     }
 
 }
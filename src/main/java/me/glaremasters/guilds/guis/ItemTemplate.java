@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.glaremasters.guilds.guis;
+
+import co.aikar.commands.ACFBukkitUtil;
+import me.glaremasters.guilds.utils.ItemBuilder;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A GUI item compiled from the config once, so opening a GUI only fills in the placeholders
+ */
+public final class ItemTemplate {
+
+    private final ItemStack base;
+    private final String name;
+    private final List<String> lore;
+
+    private ItemTemplate(ItemStack base, String name, List<String> lore) {
+        this.base = base;
+        this.name = name;
+        this.lore = lore;
+    }
+
+    /**
+     * Compile an item from the config
+     * @param material the name of the material
+     * @param name the name of the item
+     * @param lore the lore of the item
+     * @param flags the flags to add to the item
+     * @return the template
+     */
+    public static ItemTemplate of(String material, String name, List<String> lore, ItemFlag... flags) {
+        return of(new ItemStack(Material.valueOf(material)), name, lore, flags);
+    }
+
+    /**
+     * Compile an item from the config
+     * @param item the item to start from
+     * @param name the name of the item
+     * @param lore the lore of the item
+     * @param flags the flags to add to the item
+     * @return the template
+     */
+    public static ItemTemplate of(ItemStack item, String name, List<String> lore, ItemFlag... flags) {
+        String coloredName = ACFBukkitUtil.color(name);
+        List<String> coloredLore = new ArrayList<>(lore.size());
+        lore.forEach(l -> coloredLore.add(ACFBukkitUtil.color(l)));
+        ItemStack base = new ItemBuilder(item).setName(coloredName).setLore(coloredLore).addItemFlags(flags).build();
+        return new ItemTemplate(base, coloredName, Collections.unmodifiableList(coloredLore));
+    }
+
+    /**
+     * Get a copy of the item without filling in anything
+     * @return the item
+     */
+    public ItemStack build() {
+        return base.clone();
+    }
+
+    /**
+     * Get a copy of the item with its placeholders filled in
+     * @param replacements placeholder and value pairs
+     * @return the item
+     */
+    public ItemStack build(String... replacements) {
+        if (replacements.length == 0) return build();
+        return apply(base.clone(), replacements);
+    }
+
+    /**
+     * Put the name and lore of this template on another item, such as a guild's skull
+     * @param item the item to change
+     * @param replacements placeholder and value pairs
+     * @return the same item
+     */
+    public ItemStack apply(ItemStack item, String... replacements) {
+        ItemMeta meta = item.getItemMeta();
+        meta.setDisplayName(fill(name, replacements));
+        List<String> filled = new ArrayList<>(lore.size());
+        lore.forEach(l -> filled.add(fill(l, replacements)));
+        meta.setLore(filled);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * Fill in the placeholders of already colored text, coloring only the values
+     * @param text the colored text
+     * @param replacements placeholder and value pairs
+     * @return the filled in text
+     */
+    public static String fill(String text, String... replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (text.contains(replacements[i])) text = text.replace(replacements[i], ACFBukkitUtil.color(replacements[i + 1]));
+        }
+        return text;
+    }
+
+}
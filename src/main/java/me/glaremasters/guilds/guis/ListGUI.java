@@ -29,117 +29,176 @@ import co.aikar.commands.ACFBukkitUtil;
 import com.github.stefvanschie.inventoryframework.Gui;
 import com.github.stefvanschie.inventoryframework.GuiItem;
 import com.github.stefvanschie.inventoryframework.pane.OutlinePane;
-import com.github.stefvanschie.inventoryframework.pane.PaginatedPane;
+import com.github.stefvanschie.inventoryframework.pane.StaticPane;
 import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
 import me.glaremasters.guilds.configuration.sections.GuildInfoSettings;
 import me.glaremasters.guilds.configuration.sections.GuildListSettings;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
-import org.bukkit.Bukkit;
-import org.bukkit.inventory.meta.ItemMeta;
+import me.glaremasters.guilds.guild.GuildListIndex;
+import me.glaremasters.guilds.guild.GuildOrder;
+import org.bukkit.inventory.ItemStack;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Created by Glare
  * Date: 4/13/2019
  * Time: 3:51 PM
  */
-@AllArgsConstructor
 public class ListGUI {
 
+    // Rows of guilds on a page, the last row holds the page controls
+    private static final int PAGE_SIZE = 45;
+
     private Guilds guilds;
     private SettingsManager settingsManager;
     private GuildHandler guildHandler;
+    // Built list items by guild id, reused until the guild's listed details change
+    private final Map<UUID, CachedItem> items = new HashMap<>();
+    private String title;
+    private GuildOrder order;
+    private ItemTemplate guildItem;
+    private String statusPrivate;
+    private String statusPublic;
+    private ItemStack previousPage;
+    private ItemTemplate pageNumber;
+    private ItemStack nextPage;
+
+    public ListGUI(Guilds guilds, SettingsManager settingsManager, GuildHandler guildHandler) {
+        this.guilds = guilds;
+        this.settingsManager = settingsManager;
+        this.guildHandler = guildHandler;
+        compile();
+    }
+
+    /**
+     * Build the items of the GUI from the config and forget every built list item, done on load and on reload
+     */
+    public void compile() {
+        title = ACFBukkitUtil.color(settingsManager.getProperty(GuildListSettings.GUILD_LIST_NAME));
+        order = GuildOrder.match(settingsManager.getProperty(GuildListSettings.GUILD_LIST_SORT));
+        // The material is never used, the name and lore are put on each guild's skull
+        guildItem = ItemTemplate.of("PAPER", settingsManager.getProperty(GuildListSettings.GUILD_LIST_ITEM_NAME),
+                settingsManager.getProperty(GuildListSettings.GUILD_LIST_HEAD_LORE));
+        statusPrivate = settingsManager.getProperty(GuildInfoSettings.STATUS_PRIVATE);
+        statusPublic = settingsManager.getProperty(GuildInfoSettings.STATUS_PUBLIC);
+        previousPage = ItemTemplate.of(settingsManager.getProperty(GuildListSettings.GUILD_LIST_PREVIOUS_PAGE_ITEM),
+                settingsManager.getProperty(GuildListSettings.GUILD_LIST_PREVIOUS_PAGE_ITEM_NAME), Collections.emptyList()).build();
+        pageNumber = ItemTemplate.of(settingsManager.getProperty(GuildListSettings.GUILD_LIST_PAGE_NUMBER_ITEM),
+                settingsManager.getProperty(GuildListSettings.GUILD_LIST_PAGE_NUMBER_ITEM_NAME), Collections.emptyList());
+        nextPage = ItemTemplate.of(settingsManager.getProperty(GuildListSettings.GUILD_LIST_NEXT_PAGE_ITEM),
+                settingsManager.getProperty(GuildListSettings.GUILD_LIST_NEXT_PAGE_ITEM_NAME), Collections.emptyList()).build();
+        items.clear();
+    }
 
     public Gui getListGUI() {
+        return getListGUI(0);
+    }
+
+    /**
+     * Build one page of the guild list
+     * @param page the page, starting at 0
+     * @return the gui for the page
+     */
+    public Gui getListGUI(int page) {
+        GuildListIndex index = guildHandler.getListIndex();
+        int pages = Math.max(1, (index.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int current = Math.max(0, Math.min(page, pages - 1));
 
         // Create the base GUI
-        Gui gui = new Gui(guilds, 6, ACFBukkitUtil.color(settingsManager.getProperty(GuildListSettings.GUILD_LIST_NAME)));
+        Gui gui = new Gui(guilds, 6, title);
 
         // Prevent players from being able to items into the GUIs
         gui.setOnGlobalClick(event -> event.setCancelled(true));
 
-        // Prepare a paginated pane
-        OutlinePane paginatedPane = new OutlinePane(0, 0, 9, 5);
-
-        // Add the items to the pane
-        createListItems(paginatedPane);
+        // Only the guilds on this page are turned into items
+        OutlinePane pane = new OutlinePane(0, 0, 9, 5);
+        index.getPage(order, current, PAGE_SIZE).forEach(g -> setListItem(pane, index, g));
+        gui.addPane(pane);
 
-        // Add the pane to the GUI
-        gui.addPane(paginatedPane);
+        gui.addPane(createControls(current, pages));
 
         // Return the GUI
         return gui;
     }
 
     /**
-     * Create all the items for the GUI
-     * @param pane the pane to add the items to
+     * Create the previous page, page number and next page items
+     * @param page the current page
+     * @param pages the amount of pages
+     * @return the pane holding the controls
      */
-    private void createListItems(OutlinePane pane) {
-        List<Guild> guilds = guildHandler.getGuilds();
-        String sortOrder = settingsManager.getProperty(GuildListSettings.GUILD_LIST_SORT);
+    private StaticPane createControls(int page, int pages) {
+        StaticPane controls = new StaticPane(0, 5, 9, 1);
 
-        // Check if it's supposed to be sorted by tier
-        if (sortOrder.equalsIgnoreCase("TIER")) {
-            guilds.sort(Comparator.<Guild>comparingInt(g -> g.getTier().getLevel()).reversed());
+        if (page > 0) {
+            controls.addItem(new GuiItem(previousPage.clone(),
+                    event -> getListGUI(page - 1).show(event.getWhoClicked())), 0, 0);
         }
 
-        // Check if it's supposed to be sorted by members
-        if (sortOrder.equalsIgnoreCase("MEMBERS")) {
-            guilds.sort(Comparator.<Guild>comparingInt(g -> g.getMembers().size()).reversed());
-        }
+        controls.addItem(new GuiItem(pageNumber.build("{page}", String.valueOf(page + 1)),
+                event -> event.setCancelled(true)), 4, 0);
 
-        // Loop through each guild to create the item
-        guilds.forEach(g -> setListItem(pane, g));
+        if (page < pages - 1) {
+            controls.addItem(new GuiItem(nextPage.clone(),
+                    event -> getListGUI(page + 1).show(event.getWhoClicked())), 8, 0);
+        }
+        return controls;
     }
 
     /**
      * Set the item to the list
      * @param pane the pane to add to
+     * @param index the guild list index
      * @param guild the guild of the pane
      */
-    private void setListItem(OutlinePane pane, Guild guild) {
-        GuiItem listItem = new GuiItem(guild.getSkull(), event -> {
+    private void setListItem(OutlinePane pane, GuildListIndex index, Guild guild) {
+        int revision = index.getRevision(guild);
+        String master = guildHandler.getNameCache().getName(guild.getGuildMaster().getUuid());
+
+        // The master's name can still be resolving, so it's part of what the cached item depends on
+        CachedItem cached = items.get(guild.getId());
+        if (cached == null || cached.revision != revision || !cached.master.equals(master)) {
+            cached = new CachedItem(revision, master, createListItem(guild, master));
+            items.put(guild.getId(), cached);
+        }
+
+        pane.addItem(new GuiItem(cached.item.clone(), event -> {
             guilds.getGuiHandler().getInfoMembersGUI().getInfoMembersGUI(guild).show(event.getWhoClicked());
             event.setCancelled(true);
-        });
-        ItemMeta meta = listItem.getItem().getItemMeta();
-        meta.setDisplayName(ACFBukkitUtil.color(settingsManager.getProperty(GuildListSettings.GUILD_LIST_ITEM_NAME).replace("{player}", Bukkit.getOfflinePlayer(guild.getGuildMaster().getUuid()).getName()).replace("{guild}", guild.getName())));
-        meta.setLore(updatedLore(guild, settingsManager.getProperty(GuildListSettings.GUILD_LIST_HEAD_LORE)));
-        listItem.getItem().setItemMeta(meta);
-        pane.addItem(listItem);
+        }));
     }
 
     /**
-     * Update lore with replacements
-     * @param guild the guild being edited
-     * @param lore the lore to change
-     * @return updated lore
+     * Build the item shown for a guild
+     * @param guild the guild
+     * @param master the name of the guild master
+     * @return the item
      */
-    private List<String> updatedLore(Guild guild, List<String> lore) {
-        boolean status = guild.isPrivate();
-        String statusString;
-        if (status) {
-            statusString = settingsManager.getProperty(GuildInfoSettings.STATUS_PRIVATE);
-        } else {
-            statusString = settingsManager.getProperty(GuildInfoSettings.STATUS_PUBLIC);
-        }
-        List<String> updated = new ArrayList<>();
-        lore.forEach(line -> updated.add(ACFBukkitUtil.color(line
-                    .replace("{guild-name}", guild.getName())
-                    .replace("{guild-prefix}", guild.getPrefix())
-                    .replace("{guild-master}", Bukkit.getOfflinePlayer(guild.getGuildMaster().getUuid()).getName())
-                    .replace("{guild-status}", statusString)
-                    .replace("{guild-tier}", String.valueOf(guild.getTier().getLevel()))
-                    .replace("{guild-balance}", String.valueOf(guild.getBalance()))
-                    .replace("{guild-member-count}", String.valueOf(guild.getSize())
-                    .replace("{guild-tier-name}", guildHandler.getGuildTier(guild.getTier().getLevel()).getName())))));
-        return updated;
+    private ItemStack createListItem(Guild guild, String master) {
+        return guildItem.apply(guild.getSkull(),
+                "{player}", master,
+                "{guild}", guild.getName(),
+                "{guild-name}", guild.getName(),
+                "{guild-prefix}", guild.getPrefix(),
+                "{guild-master}", master,
+                "{guild-status}", guild.isPrivate() ? statusPrivate : statusPublic,
+                "{guild-tier-name}", guildHandler.getGuildTier(guild.getTier().getLevel()).getName(),
+                "{guild-tier}", String.valueOf(guild.getTier().getLevel()),
+                "{guild-balance}", String.valueOf(guild.getBalance()),
+                "{guild-member-count}", String.valueOf(guild.getSize()));
+    }
+
+    @AllArgsConstructor
+    private static class CachedItem {
+        private final int revision;
+        private final String master;
+        private final ItemStack item;
     }
 
 }
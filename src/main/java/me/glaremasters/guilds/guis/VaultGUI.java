@@ -31,50 +31,61 @@ import com.github.stefvanschie.inventoryframework.Gui;
 import com.github.stefvanschie.inventoryframework.GuiItem;
 import com.github.stefvanschie.inventoryframework.pane.OutlinePane;
 import com.github.stefvanschie.inventoryframework.pane.Pane;
-import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
 import me.glaremasters.guilds.configuration.sections.VaultPickerSettings;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
-import me.glaremasters.guilds.utils.ItemBuilder;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Inventory;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Created by Glare
  * Date: 5/12/2019
  * Time: 1:57 PM
  */
-@AllArgsConstructor
 public class VaultGUI {
 
     private Guilds guilds;
     private SettingsManager settingsManager;
     private GuildHandler guildHandler;
-    private static int num = 0;
+    private int size;
+    private String title;
+    private ItemTemplate unlocked;
+    private ItemTemplate locked;
+
+    public VaultGUI(Guilds guilds, SettingsManager settingsManager, GuildHandler guildHandler) {
+        this.guilds = guilds;
+        this.settingsManager = settingsManager;
+        this.guildHandler = guildHandler;
+        compile();
+    }
+
+    /**
+     * Build the items of the GUI from the config, done on load and on reload
+     */
+    public void compile() {
+        size = settingsManager.getProperty(VaultPickerSettings.GUI_SIZE);
+        title = ACFBukkitUtil.color(settingsManager.getProperty(VaultPickerSettings.GUI_NAME));
+        unlocked = pickerTemplate(settingsManager.getProperty(VaultPickerSettings.PICKER_UNLOCKED));
+        locked = pickerTemplate(settingsManager.getProperty(VaultPickerSettings.PICKER_LOCKED));
+    }
 
     public Gui getVaultGUI(Guild guild, Player player, CommandManager commandManager) {
 
         // Create the GUI with the desired name from the config
-        Gui gui = new Gui(guilds, settingsManager.getProperty(VaultPickerSettings.GUI_SIZE),
-                ACFBukkitUtil.color(settingsManager.getProperty(VaultPickerSettings.GUI_NAME).replace("{name}",
-                guild.getName())));
+        Gui gui = new Gui(guilds, size, ItemTemplate.fill(title, "{name}", guild.getName()));
 
         // Prevent players from being able to items into the GUIs
         gui.setOnGlobalClick(event -> event.setCancelled(true));
 
         // Create the pane for the main items
-        OutlinePane foregroundPane = new OutlinePane(0, 0, 9, settingsManager.getProperty(VaultPickerSettings.GUI_SIZE), Pane.Priority.NORMAL);
+        OutlinePane foregroundPane = new OutlinePane(0, 0, 9, size, Pane.Priority.NORMAL);
 
         // Add the items to the foreground pane
-        createForegroundItems(foregroundPane, guild, player, commandManager);
-
-        // Set it back to 0
-        num = 0;
+        createForegroundItems(foregroundPane, guild, player);
 
         // Add the foreground pane to the GUI
         gui.addPane(foregroundPane);
@@ -89,49 +100,31 @@ public class VaultGUI {
      * @param pane the pane to be added to
      * @param guild the guild of the player
      */
-    private void createForegroundItems(OutlinePane pane, Guild guild, Player player, CommandManager commandManager) {
+    private void createForegroundItems(OutlinePane pane, Guild guild, Player player) {
         int max = guildHandler.getGuildTier(guild.getTier().getLevel()).getVaultAmount();
         for (int i = 0; i < max; i++) {
-            String status;
-            if (guildHandler.hasVaultUnlocked((i + 1), guild)) {
-                status = settingsManager.getProperty(VaultPickerSettings.PICKER_UNLOCKED);
-            } else {
-                status = settingsManager.getProperty(VaultPickerSettings.PICKER_LOCKED);
-            }
-            pane.addItem(new GuiItem(easyItem(settingsManager.getProperty(VaultPickerSettings.PICKER_MATERIAL),
-                    settingsManager.getProperty(VaultPickerSettings.PICKER_NAME),
-                    settingsManager.getProperty(VaultPickerSettings.PICKER_LORE).stream().map(l ->
-                            l.replace("{number}", String.valueOf(num + 1))
-                                    .replace("{status}", status)).collect(Collectors.toList())), event -> {
+            // The status is already part of each template
+            ItemTemplate template = guildHandler.hasVaultUnlocked((i + 1), guild) ? unlocked : locked;
+            pane.addItem(new GuiItem(template.build("{number}", String.valueOf(i + 1)), event -> {
                 event.setCancelled(true);
-                try {
-                    guildHandler.getGuildVault(guild, (event.getRawSlot() + 1));
-                } catch (IndexOutOfBoundsException ex) {
-                    guildHandler.getCachedVaults().get(guild).add(guildHandler.createNewVault(settingsManager));
-                }
-                player.openInventory(guildHandler.getGuildVault(guild, (event.getRawSlot() + 1)));
+                Inventory vault = guildHandler.getGuildVault(guild, (event.getRawSlot() + 1));
+                if (vault == null) return;
+                player.openInventory(vault);
                 guildHandler.getOpenedVault().add(player);
             }));
-            num++;
         }
     }
 
     /**
-     * Easily create an item for the GUI
-     * @param material the material of the item
-     * @param name the name of the item
-     * @param lore the lore of the item
-     * @return created itemstack
+     * Compile the picker item with its status filled in
+     * @param status the status text
+     * @return the template
      */
-    private ItemStack easyItem(String material, String name, List<String> lore) {
-        // Start the itembuilder
-        ItemBuilder builder = new ItemBuilder(Material.valueOf(material));
-        // Sets the name of the item
-        builder.setName(ACFBukkitUtil.color(name));
-        // Sets the lore of the item
-        builder.setLore(lore.stream().map(ACFBukkitUtil::color).collect(Collectors.toList()));
-        // Return the created item
-        return builder.build();
+    private ItemTemplate pickerTemplate(String status) {
+        List<String> lore = new ArrayList<>();
+        settingsManager.getProperty(VaultPickerSettings.PICKER_LORE).forEach(l -> lore.add(l.replace("{status}", status)));
+        return ItemTemplate.of(settingsManager.getProperty(VaultPickerSettings.PICKER_MATERIAL),
+                settingsManager.getProperty(VaultPickerSettings.PICKER_NAME), lore);
     }
 
 }
@@ -24,17 +24,21 @@
 
 package me.glaremasters.guilds.listeners;
 
-import ch.jalu.configme.SettingsManager;
 import lombok.AllArgsConstructor;
-import me.glaremasters.guilds.configuration.sections.GuildSettings;
-import me.glaremasters.guilds.guild.Guild;
+import me.glaremasters.guilds.configuration.CompiledSettings;
+import me.glaremasters.guilds.configuration.SettingsHandler;
 import me.glaremasters.guilds.guild.GuildHandler;
+import me.glaremasters.guilds.guild.GuildRelation;
+import me.glaremasters.guilds.guild.PlayerModifiers;
 import me.glaremasters.guilds.utils.ClaimUtils;
 import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Monster;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
 import org.bukkit.entity.ThrownPotion;
+import org.bukkit.event.Cancellable;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityCombustByEntityEvent;
@@ -57,20 +61,30 @@ import java.util.Set;
 public class EntityListener implements Listener {
 
     private GuildHandler guildHandler;
-    private SettingsManager settingsManager;
+    private SettingsHandler settingsHandler;
     private final Set<PotionEffectType> bad = new HashSet<>(Arrays.asList(PotionEffectType.BLINDNESS, PotionEffectType.WITHER, PotionEffectType.SLOW_DIGGING, PotionEffectType.WEAKNESS, PotionEffectType.SLOW, PotionEffectType.POISON));
 
     /**
-     * Handles the extra damage to a mob
-     * @param event
+     * Single entry point for entity damage: resolves who is attacking once, then applies
+     * the tier damage bonus and the guild / ally damage rules
+     * @param event the damage event
      */
     @EventHandler
-    public void onMobDamage(EntityDamageByEntityEvent event) {
-        if (event.getDamager() instanceof Player) {
-            Player player = (Player) event.getDamager();
-            Guild guild = guildHandler.getGuild(player);
-            if (guild != null) event.setDamage((int) (event.getDamage() * guild.getTier().getDamageMultiplier()));
+    public void onDamage(EntityDamageByEntityEvent event) {
+        Player attacker = getAttacker(event.getDamager());
+        if (attacker == null) return;
+
+        // Only melee hits get the tier damage bonus
+        if (event.getDamager() == attacker) {
+            PlayerModifiers modifiers = guildHandler.getModifiers(attacker);
+            if (modifiers != PlayerModifiers.NONE) event.setDamage((int) (event.getDamage() * modifiers.getDamageMultiplier()));
         }
+
+        if (!(event.getEntity() instanceof Player)) return;
+        Player victim = (Player) event.getEntity();
+        if (victim == attacker) return;
+
+        handleFriendlyFire(event, attacker, victim);
     }
 
     /**
@@ -83,65 +97,8 @@ public class EntityListener implements Listener {
         Monster monster = (Monster) event.getEntity();
         Player killer = monster.getKiller();
         if (killer == null) return;
-        Guild guild = guildHandler.getGuild(killer);
-        if (guild != null) event.setDroppedExp((int) (event.getDroppedExp() * guild.getTier().getDamageMultiplier()));
-    }
-
-    /**
-     * Guild / Ally damage handlers
-     * @param event handles when damage is done between two players that might be in the same guild or are allies
-     */
-    @EventHandler
-    public void onEntityDamage(EntityDamageByEntityEvent event) {
-        if (!(event.getEntity() instanceof Player) || !(event.getDamager() instanceof Player)) return;
-        Player player = (Player) event.getEntity();
-        Player damager = (Player) event.getDamager();
-
-        if (settingsManager.getProperty(GuildSettings.RESPECT_WG_PVP_FLAG)) {
-            event.setCancelled(ClaimUtils.checkPvpDisabled(player));
-            return;
-        }
-
-        if (guildHandler.isSameGuild(player, damager)) {
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.GUILD_DAMAGE));
-            return;
-        }
-        if (guildHandler.isAlly(player, damager)) {
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.ALLY_DAMAGE));
-        }
-    }
-
-    @EventHandler
-    public void onArrow(EntityDamageByEntityEvent event) {
-
-        if (!(event.getEntity() instanceof Player))
-            return;
-
-        if (!(event.getDamager() instanceof Arrow))
-            return;
-
-        Arrow arrow = (Arrow) event.getDamager();
-
-        if (!(arrow.getShooter() instanceof Player))
-            return;
-
-        Player damagee = (Player) event.getEntity();
-        Player damager = (Player) arrow.getShooter();
-
-        if (settingsManager.getProperty(GuildSettings.RESPECT_WG_PVP_FLAG)) {
-            event.setCancelled(ClaimUtils.checkPvpDisabled(damagee));
-            return;
-        }
-
-        if (guildHandler.isSameGuild(damagee, damager) && damagee != damager ) {
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.GUILD_DAMAGE));
-            return;
-        }
-
-        if (guildHandler.isAlly(damagee, damager)) {
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.ALLY_DAMAGE));
-        }
-
+        PlayerModifiers modifiers = guildHandler.getModifiers(killer);
+        if (modifiers != PlayerModifiers.NONE) event.setDroppedExp((int) (event.getDroppedExp() * modifiers.getMobXpMultiplier()));
     }
 
     /**
@@ -150,7 +107,6 @@ public class EntityListener implements Listener {
      */
     @EventHandler
     public void onFlameArrow(EntityCombustByEntityEvent event) {
-
         if (!(event.getEntity() instanceof Player))
             return;
 
@@ -158,27 +114,12 @@ public class EntityListener implements Listener {
             return;
 
         Arrow arrow = (Arrow) event.getCombuster();
-
-        if (!(arrow.getShooter() instanceof Player))
+        Player damager = getAttacker(arrow);
+        if (damager == null)
             return;
 
-        Player damagee = (Player) event.getEntity();
-        Player damager = (Player) arrow.getShooter();
-
-        if (settingsManager.getProperty(GuildSettings.RESPECT_WG_PVP_FLAG)) {
-            event.setCancelled(ClaimUtils.checkPvpDisabled(damagee));
-            return;
-        }
-
-        if (guildHandler.isSameGuild(damagee, damager)) {
+        if (handleFriendlyFire(event, damager, (Player) event.getEntity()) != GuildRelation.NONE) {
             arrow.setFireTicks(0);
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.GUILD_DAMAGE));
-            return;
-        }
-
-        if (guildHandler.isAlly(damagee, damager)) {
-            arrow.setFireTicks(0);
-            event.setCancelled(!settingsManager.getProperty(GuildSettings.ALLY_DAMAGE));
         }
     }
 
@@ -207,19 +148,53 @@ public class EntityListener implements Listener {
         Player shooter = (Player) potion.getShooter();
 
         for (LivingEntity entity : event.getAffectedEntities()) {
-            if (entity instanceof Player)  {
-                Player player = (Player) entity;
-                if (guildHandler.isSameGuild(shooter, player) && potion.getShooter() != player ) {
-                    event.setCancelled(!settingsManager.getProperty(GuildSettings.GUILD_DAMAGE));
+            if (entity instanceof Player && entity != shooter)  {
+                GuildRelation relation = guildHandler.getRelation(shooter, (Player) entity);
+                if (relation == GuildRelation.SAME_GUILD) {
+                    event.setCancelled(!settingsHandler.getCompiled().isGuildDamage());
                     return;
                 }
-                if (guildHandler.isAlly(shooter, player)) {
-                    event.setCancelled(!settingsManager.getProperty(GuildSettings.ALLY_DAMAGE));
+                if (relation == GuildRelation.ALLY) {
+                    event.setCancelled(!settingsHandler.getCompiled().isAllyDamage());
                 }
             }
         }
 
     }
 
+    /**
+     * Apply the guild and ally damage settings to an attack between two players
+     * @param event the event to cancel
+     * @param attacker the attacking player
+     * @param victim the player being attacked
+     * @return the relation the settings were applied for, NONE if they didn't apply
+     */
+    private GuildRelation handleFriendlyFire(Cancellable event, Player attacker, Player victim) {
+        CompiledSettings settings = settingsHandler.getCompiled();
+        if (settings.isRespectWgPvpFlag()) {
+            event.setCancelled(ClaimUtils.checkPvpDisabled(victim));
+            return GuildRelation.NONE;
+        }
 
+        GuildRelation relation = guildHandler.getRelation(attacker, victim);
+        if (relation == GuildRelation.SAME_GUILD) {
+            event.setCancelled(!settings.isGuildDamage());
+        } else if (relation == GuildRelation.ALLY) {
+            event.setCancelled(!settings.isAllyDamage());
+        }
+        return relation;
+    }
+
+    /**
+     * Find the player behind a damaging entity
+     * @param damager the entity doing the damage
+     * @return the player hitting directly or shooting the projectile, null if it isn't a player
+     */
+    private Player getAttacker(Entity damager) {
+        if (damager instanceof Player)
+            return (Player) damager;
+        if (damager instanceof Projectile && ((Projectile) damager).getShooter() instanceof Player)
+            return (Player) ((Projectile) damager).getShooter();
+        return null;
+    }
 }
@@ -25,9 +25,8 @@
 package me.glaremasters.guilds.listeners;
 
 import lombok.AllArgsConstructor;
-import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
-import org.bukkit.Bukkit;
+import me.glaremasters.guilds.guild.PlaceholderSnapshot;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -46,11 +45,11 @@ public class EssentialsChatListener implements Listener {
     @EventHandler
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
-        Guild guild = guildHandler.getGuild(player);
+        PlaceholderSnapshot snapshot = guildHandler.getPlaceholders(player);
 
         String message = event.getFormat();
 
-        if (guild == null) {
+        if (snapshot == null) {
             String regex = "(\\{GUILD(?:.+)?})";
             String formatted = "(\\\\{GUILD_FORMATTED\\\\})";
 
@@ -60,14 +59,14 @@ public class EssentialsChatListener implements Listener {
         }
 
         message = message
-                .replace("{GUILD}", guild.getName())
-                .replace("{GUILD_PREFIX}", guild.getPrefix())
-                .replace("{GUILD_MASTER}", Bukkit.getOfflinePlayer(guild.getGuildMaster().getUuid()).getName())
-                .replace("{GUILD_STATUS}", guild.getStatus().name())
-                .replace("{GUILD_MEMBER_COUNT}",  String.valueOf(guild.getSize()))
-                .replace("{GUILD_MEMBERS_ONLINE}", String.valueOf(guild.getOnlineMembers().size()))
-                .replace("{GUILD_ROLE}", guild.getMember(player.getUniqueId()).getRole().getName())
-                .replace("{GUILD_FORMATTED}", guildHandler.getFormattedPlaceholder(player));
+                .replace("{GUILD}", snapshot.getName())
+                .replace("{GUILD_PREFIX}", snapshot.getPrefix())
+                .replace("{GUILD_MASTER}", snapshot.getMaster())
+                .replace("{GUILD_STATUS}", snapshot.getStatus())
+                .replace("{GUILD_MEMBER_COUNT}", snapshot.getMemberCount())
+                .replace("{GUILD_MEMBERS_ONLINE}", snapshot.getMembersOnline())
+                .replace("{GUILD_ROLE}", snapshot.getRole())
+                .replace("{GUILD_FORMATTED}", snapshot.getFormatted());
 
         event.setFormat(message);
     }
@@ -29,10 +29,14 @@ import co.aikar.commands.ACFBukkitUtil;
 import co.aikar.commands.PaperCommandManager;
 import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
+import me.glaremasters.guilds.configuration.CompiledSettings;
 import me.glaremasters.guilds.configuration.sections.GuildSettings;
 import me.glaremasters.guilds.configuration.sections.PluginSettings;
+import me.glaremasters.guilds.guild.ChatMode;
+import me.glaremasters.guilds.guild.ChatSession;
 import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
+import me.glaremasters.guilds.guild.GuildMember;
 import me.glaremasters.guilds.messages.Messages;
 import me.glaremasters.guilds.utils.JSONMessage;
 import net.milkbowl.vault.permission.Permission;
@@ -123,15 +127,47 @@ public class PlayerListener implements Listener {
     @EventHandler(priority = EventPriority.HIGH)
     public void onChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
-        Guild guild = guildHandler.getGuild(player);
-
-        if (guild == null) return;
+        // Only the session is read here, nothing that the main thread changes without synchronization
+        ChatSession session = guildHandler.getChatSession(player);
+        if (session == null || session.getMode() == ChatMode.PUBLIC) return;
+
+        Guild guild = session.getGuild();
+        GuildMember member = session.getMember();
+        if (guild == null || member == null) return;
+
+        CompiledSettings settings = guilds.getSettingsHandler().getCompiled();
+        // The formats are colored already, only the parts filled in here still need it
+        if (session.getMode() == ChatMode.ALLY) {
+            String base = fillChatFormat(settings.getAllyChatFormat(), player, member, event.getMessage())
+                    .replace("{guild}", ACFBukkitUtil.color(guild.getName()));
+            guildHandler.getAllyAudience(guild).forEach(online -> online.forEach(p -> p.sendMessage(base)));
+        } else {
+            String base = fillChatFormat(settings.getGuildChatFormat(), player, member, event.getMessage());
+            guild.getOnlinePlayers().forEach(p -> p.sendMessage(base));
+        }
 
-        if (guildHandler.checkGuildChat(player)) {
-            guild.sendMessage(ACFBukkitUtil.color(settingsManager.getProperty(GuildSettings.GUILD_CHAT_FORMAT).replace("{role}", guildHandler.getGuildRole(guild.getMember(player.getUniqueId()).getRole().getLevel()).getName()).replace("{player}", player.getName()).replace("{display-name}", player.getDisplayName()).replace("{message}", event.getMessage())));
-            guildHandler.getSpies().forEach(s -> s.sendMessage(ACFBukkitUtil.color(settingsManager.getProperty(GuildSettings.SPY_CHAT_FORMAT).replace("{role}", guildHandler.getGuildRole(guild.getMember(player.getUniqueId()).getRole().getLevel()).getName()).replace("{player}", player.getName()).replace("{display-name}", player.getDisplayName()).replace("{message}", event.getMessage()).replace("{guild}", guild.getName()))));
-            event.setCancelled(true);
+        Set<Player> spies = guildHandler.getChatSpies();
+        if (!spies.isEmpty()) {
+            String spy = fillChatFormat(settings.getSpyChatFormat(), player, member, event.getMessage())
+                    .replace("{guild}", ACFBukkitUtil.color(guild.getName()));
+            spies.forEach(s -> s.sendMessage(spy));
         }
+        event.setCancelled(true);
+    }
+
+    /**
+     * Fill in the player placeholders of a colored chat format, once per message
+     * @param format the colored format
+     * @param player the player chatting
+     * @param member the player as a guild member
+     * @param message the message
+     * @return the formatted message
+     */
+    private String fillChatFormat(String format, Player player, GuildMember member, String message) {
+        return format.replace("{role}", ACFBukkitUtil.color(member.getRole().getName()))
+                .replace("{player}", player.getName())
+                .replace("{display-name}", ACFBukkitUtil.color(player.getDisplayName()))
+                .replace("{message}", ACFBukkitUtil.color(message));
     }
 
     /**
@@ -143,6 +179,24 @@ public class PlayerListener implements Listener {
         guildHandler.chatLogout(event.getPlayer());
     }
 
+    /**
+     * Track the player as an online member of their guild and work out their tier bonuses
+     * @param event
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void trackJoin(PlayerJoinEvent event) {
+        guildHandler.playerJoined(event.getPlayer());
+    }
+
+    /**
+     * Stop tracking the player and drop their tier bonuses
+     * @param event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void trackQuit(PlayerQuitEvent event) {
+        guildHandler.playerQuit(event.getPlayer());
+    }
+
     /**
      * Make sure the player has all the perms for their current tier.
      * @param event
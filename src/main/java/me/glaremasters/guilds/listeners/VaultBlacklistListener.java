@@ -24,21 +24,27 @@
 
 package me.glaremasters.guilds.listeners;
 
-import ch.jalu.configme.SettingsManager;
 import co.aikar.commands.ACFBukkitUtil;
 import lombok.AllArgsConstructor;
 import me.glaremasters.guilds.Guilds;
-import me.glaremasters.guilds.configuration.sections.GuildVaultSettings;
+import me.glaremasters.guilds.configuration.CompiledSettings;
+import me.glaremasters.guilds.configuration.SettingsHandler;
 import me.glaremasters.guilds.guild.GuildHandler;
 import me.glaremasters.guilds.messages.Messages;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -51,7 +57,7 @@ public class VaultBlacklistListener implements Listener {
 
     private Guilds guilds;
     private GuildHandler guildHandler;
-    private SettingsManager settingsManager;
+    private SettingsHandler settingsHandler;
 
     /**
      * Helps determine if a player has a Guild vault open
@@ -64,6 +70,58 @@ public class VaultBlacklistListener implements Listener {
             Player player = (Player) event.getPlayer();
             guildHandler.getOpenedVault().remove(player);
         }
+        Inventory inventory = event.getInventory();
+        if (guildHandler.isGuildVault(inventory)) {
+            // The closing player is still counted as a viewer during the event
+            guildHandler.closeVault(inventory, inventory.getViewers().size() - 1);
+        }
+    }
+
+    /**
+     * Flag a vault as changed when a click puts items into or takes them out of it
+     *
+     * @param event the click event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultClick(InventoryClickEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!guildHandler.isGuildVault(top))
+            return;
+
+        // Clicks in the player's own inventory only reach the vault by shift clicking or collecting to the cursor
+        if (top.equals(event.getClickedInventory()) || event.getAction() == InventoryAction.MOVE_TO_OTHER_INVENTORY
+                || event.getAction() == InventoryAction.COLLECT_TO_CURSOR) {
+            guildHandler.markVaultChanged(top);
+        }
+    }
+
+    /**
+     * Flag a vault as changed when items are dragged across it
+     *
+     * @param event the drag event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultDrag(InventoryDragEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!guildHandler.isGuildVault(top))
+            return;
+
+        if (event.getRawSlots().stream().anyMatch(s -> s < top.getSize())) {
+            guildHandler.markVaultChanged(top);
+        }
+    }
+
+    /**
+     * Flag a vault as changed when something else moves items into or out of it
+     *
+     * @param event the move event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultMove(InventoryMoveItemEvent event) {
+        if (guildHandler.isGuildVault(event.getSource()))
+            guildHandler.markVaultChanged(event.getSource());
+        if (guildHandler.isGuildVault(event.getDestination()))
+            guildHandler.markVaultChanged(event.getDestination());
     }
 
     /**
@@ -88,9 +146,10 @@ public class VaultBlacklistListener implements Listener {
         if (item == null)
             return;
 
+        CompiledSettings settings = settingsHandler.getCompiled();
+
         // set cancelled if it contains material name
-        event.setCancelled(settingsManager.getProperty(GuildVaultSettings.BLACKLIST_MATERIALS).stream().anyMatch(m ->
-                m.equalsIgnoreCase(item.getType().name())));
+        event.setCancelled(settings.getVaultBlacklistMaterials().contains(item.getType()));
 
         // check if event is cancelled, if not, check name
         if (event.isCancelled()) {
@@ -105,8 +164,8 @@ public class VaultBlacklistListener implements Listener {
         // Check if it has a display name
         if (item.getItemMeta().hasDisplayName()) {
             // set cancelled if contains name
-            event.setCancelled(settingsManager.getProperty(GuildVaultSettings.BLACKLIST_NAMES).stream().anyMatch(m ->
-                    m.equalsIgnoreCase(ACFBukkitUtil.removeColors(item.getItemMeta().getDisplayName()))));
+            event.setCancelled(settings.getVaultBlacklistNames().contains(
+                    ACFBukkitUtil.removeColors(item.getItemMeta().getDisplayName()).toLowerCase(Locale.ROOT)));
         }
 
         // check if event is cancelled
@@ -124,14 +183,12 @@ public class VaultBlacklistListener implements Listener {
                 .map(ACFBukkitUtil::removeColors).collect(Collectors.toList());
 
         // loop through string list
-        for (String check : settingsManager.getProperty(GuildVaultSettings.BLACKLIST_LORES)) {
+        for (String check : settings.getVaultBlacklistLores()) {
             // check if the lore contains it
-            if (!check.equalsIgnoreCase("")) {
-                if (lore.stream().anyMatch(l -> l.contains(check))) {
-                    // cancel the event
-                    event.setCancelled(true);
-                    break;
-                }
+            if (lore.stream().anyMatch(l -> l.contains(check))) {
+                // cancel the event
+                event.setCancelled(true);
+                break;
             }
         }
 
@@ -83,7 +83,7 @@ public enum Messages implements MessageKeyProvider {
 
     CONFIRM__ERROR, CONFIRM__SUCCESS,
 
-    CHAT__ENABLED, CHAT__DISABLED,
+    CHAT__ENABLED, CHAT__DISABLED, CHAT__ALLY_ENABLED, CHAT__ALLY_DISABLED,
 
     ALLY__NONE, ALLY__LIST, ALLY__CURRENT_DECLINED, ALLY__TARGET_DECLINED,
     ALLY__CURRENT_ACCEPTED, ALLY__TARGET_ACCEPTED, ALLY__INVITE_SENT, ALLY__INCOMING_INVITE,
@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.names;
+
+import me.glaremasters.guilds.Guilds;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Plugin owned cache of player names by uuid, filled as players join and kept on disk between restarts.
+ * Lookups never touch Bukkit's offline player storage on the calling thread, misses are resolved in the background.
+ */
+public class NameCache {
+
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Logger logger;
+    private final Map<UUID, String> names;
+    // Misses being resolved, or that resolved to nothing, so each one is only looked up once
+    private final Set<UUID> pending;
+    private volatile boolean dirty;
+
+    public NameCache(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+        this.names = new ConcurrentHashMap<>();
+        this.pending = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Read the cached names from disk, moving an unreadable file aside and starting empty since every name can be looked up again
+     */
+    public void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            int version = in.readByte();
+            if (version != VERSION) {
+                logger.warning("Ignoring name cache with unknown version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                names.put(new UUID(in.readLong(), in.readLong()), in.readUTF());
+            }
+        } catch (IOException | RuntimeException e) {
+            names.clear();
+            File corrupt = new File(file.getParentFile(), file.getName() + ".corrupt");
+            logger.warning("Could not read the name cache, moving it to " + corrupt.getName() + " and starting empty: " + e);
+            try {
+                Files.move(file.toPath(), corrupt.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                logger.warning("Could not move the name cache aside: " + ex);
+            }
+        }
+    }
+
+    /**
+     * Write the cached names to disk if any changed, keeping them marked as changed if the write fails
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        // Cleared before copying so names learned during the write mark it dirty again, and set back if the write fails
+        dirty = false;
+        List<Map.Entry<UUID, String>> entries = new ArrayList<>(names.entrySet());
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeByte(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<UUID, String> entry : entries) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Remember the current name of a player, called as they join
+     * @param player the player
+     */
+    public void update(Player player) {
+        String previous = names.put(player.getUniqueId(), player.getName());
+        if (!player.getName().equals(previous)) dirty = true;
+        pending.remove(player.getUniqueId());
+    }
+
+    /**
+     * Get the name of a player
+     * @param uuid the uuid of the player
+     * @return their name, or their uuid while the name is still being looked up
+     */
+    public String getName(UUID uuid) {
+        String name = names.get(uuid);
+        if (name != null) return name;
+        resolve(uuid);
+        return uuid.toString();
+    }
+
+    /**
+     * Get the names of many players at once, looking up all misses in a single background task
+     * @param uuids the uuids of the players
+     * @return their names, in the same order
+     */
+    public List<String> getNames(Collection<UUID> uuids) {
+        List<String> result = new ArrayList<>(uuids.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            String name = names.get(uuid);
+            if (name == null) {
+                missing.add(uuid);
+                name = uuid.toString();
+            }
+            result.add(name);
+        }
+        if (!missing.isEmpty()) warm(missing);
+        return result;
+    }
+
+    /**
+     * Look up the names of players that aren't cached yet in the background
+     * @param uuids the uuids of the players
+     */
+    public void warm(Collection<UUID> uuids) {
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (!names.containsKey(uuid) && pending.add(uuid)) missing.add(uuid);
+        }
+        if (missing.isEmpty()) return;
+        Guilds.newChain().async(() -> missing.forEach(this::lookup)).execute();
+    }
+
+    /**
+     * Look up the name of a player that isn't cached yet in the background
+     * @param uuid the uuid of the player
+     */
+    private void resolve(UUID uuid) {
+        if (!pending.add(uuid)) return;
+        Guilds.newChain().async(() -> lookup(uuid)).execute();
+    }
+
+    /**
+     * Ask Bukkit for the name of a player, only called off the main thread
+     * @param uuid the uuid of the player
+     */
+    private void lookup(UUID uuid) {
+        String name = Bukkit.getOfflinePlayer(uuid).getName();
+        if (name == null) return;
+        names.putIfAbsent(uuid, name);
+        pending.remove(uuid);
+        dirty = true;
+    }
+}
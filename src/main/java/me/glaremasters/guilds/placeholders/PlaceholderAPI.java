@@ -26,10 +26,10 @@ package me.glaremasters.guilds.placeholders;
 
 import lombok.AllArgsConstructor;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
-import me.glaremasters.guilds.Guilds;
-import me.glaremasters.guilds.api.GuildsAPI;
+import me.glaremasters.guilds.guild.Guild;
 import me.glaremasters.guilds.guild.GuildHandler;
-import org.bukkit.Bukkit;
+import me.glaremasters.guilds.guild.GuildOrder;
+import me.glaremasters.guilds.guild.PlaceholderSnapshot;
 import org.bukkit.entity.Player;
 
 @AllArgsConstructor
@@ -82,48 +82,104 @@ public class PlaceholderAPI extends PlaceholderExpansion {
     @Override
     public String onPlaceholderRequest(Player p, String arg) {
 
-        if (p == null)  return null;
+        String lowerArg = arg.toLowerCase();
 
-        GuildsAPI api = Guilds.getApi();
-        if (api == null) return null;
+        // Leaderboards don't depend on the player, so holograms can show them without one
+        if (lowerArg.startsWith("top_")) return getTopPlaceholder(lowerArg);
 
-        String lowerArg = arg.toLowerCase();
+        if (p == null)  return null;
 
-        if (api.getGuild(p) == null) return "";
+        PlaceholderSnapshot snapshot = guildHandler.getPlaceholders(p);
+        if (snapshot == null) return "";
 
         switch (lowerArg) {
             case "id":
-                return api.getGuild(p).getId().toString();
+                return snapshot.getId();
             case "name":
-                return api.getGuild(p).getName();
+                return snapshot.getName();
             case "master":
-                return Bukkit.getOfflinePlayer(api.getGuild(p).getGuildMaster().getUuid()).getName();
+                return snapshot.getMaster();
             case "member_count":
-                return String.valueOf(api.getGuild(p).getMembers().size());
+                return snapshot.getMemberCount();
             case "prefix":
-                return api.getGuild(p).getPrefix();
+                return snapshot.getPrefix();
             case "members_online":
-                return String.valueOf(api.getGuild(p).getOnlineMembers().size());
+                return snapshot.getMembersOnline();
             case "status":
-                return api.getGuild(p).getStatus().name();
+                return snapshot.getStatus();
             case "role":
-                return api.getGuildRole(p).getName();
+                return snapshot.getRole();
             case "tier":
-                return String.valueOf(api.getGuild(p).getTier().getLevel());
+                return snapshot.getTier();
             case "balance":
-                return String.valueOf(api.getGuild(p).getBalance());
+                return snapshot.getBalance();
             case "tier_name":
-                return api.getGuild(p).getTier().getName();
+                return snapshot.getTierName();
             case "role_node":
-                return api.getGuildRole(p).getNode();
+                return snapshot.getRoleNode();
             case "code_amount":
-                return String.valueOf(api.getGuild(p).getCodes().size());
+                return snapshot.getCodeAmount();
             case "max_members":
-                return String.valueOf(api.getGuild(p).getTier().getMaxMembers());
+                return snapshot.getMaxMembers();
             case "max_balance":
-                return String.valueOf(api.getGuild(p).getTier().getMaxBankBalance());
+                return snapshot.getMaxBalance();
             case "formatted":
-                return guildHandler.getFormattedPlaceholder(p);
+                return snapshot.getFormatted();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Get a leaderboard placeholder, in the format top_<metric>_<rank>_<name|prefix|value>
+     * @param arg the lower case placeholder
+     * @return placeholder, empty if the rank isn't taken
+     */
+    private String getTopPlaceholder(String arg) {
+        String[] parts = arg.split("_");
+        if (parts.length != 4) return "";
+
+        GuildOrder order = GuildOrder.match(parts[1]);
+        if (!order.isRanked()) return "";
+
+        int rank;
+        try {
+            rank = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return "";
+        }
+
+        Guild guild = guildHandler.getListIndex().getRanked(order, rank);
+        if (guild == null) return "";
+
+        switch (parts[3]) {
+            case "name":
+                return guild.getName();
+            case "prefix":
+                return guild.getPrefix();
+            case "value":
+                return getTopValue(order, guild);
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Get the value a guild is ranked by
+     * @param order the leaderboard
+     * @param guild the guild
+     * @return the value
+     */
+    private String getTopValue(GuildOrder order, Guild guild) {
+        switch (order) {
+            case TIER:
+                return String.valueOf(guild.getTier().getLevel());
+            case MEMBERS:
+                return String.valueOf(guild.getSize());
+            case BALANCE:
+                return String.valueOf(guild.getBalance());
+            case ONLINE:
+                return String.valueOf(guild.getOnlineCount());
             default:
                 return "";
         }
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.skulls;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Looks up skin textures through the minetools profile api
+ */
+public class MinetoolsTextureSource implements TextureSource {
+
+    private static final String PROFILE_URL = "https://api.minetools.eu/profile/";
+
+    private final int timeout;
+
+    /**
+     * @param timeout connect and read timeout in milliseconds
+     */
+    public MinetoolsTextureSource(int timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String fetchTexture(UUID uuid) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(PROFILE_URL + uuid.toString().replace("-", "")).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+            JsonObject skin = new JsonParser().parse(reader).getAsJsonObject().get("decoded").getAsJsonObject()
+                    .get("textures").getAsJsonObject().get("SKIN").getAsJsonObject();
+            String url = skin.get("url").getAsString();
+            return url.substring(url.lastIndexOf('/') + 1);
+        } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+            throw new IOException("Unexpected profile response for " + uuid, e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.skulls;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the skin textures of players for guild skulls in the background.
+ * Textures are kept on disk between restarts and concurrent requests for the same player share one lookup.
+ */
+public class SkullService {
+
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Logger logger;
+    private final TextureSource source;
+    private final ExecutorService executor;
+    // Texture hashes by player uuid
+    private final Map<UUID, String> textures;
+    // Lookups still running, so a second request for the same player waits on the first
+    private final Map<UUID, CompletableFuture<String>> inFlight;
+    private volatile boolean dirty;
+
+    public SkullService(File file, Logger logger, TextureSource source) {
+        this.file = file;
+        this.logger = logger;
+        this.source = source;
+        this.textures = new ConcurrentHashMap<>();
+        this.inFlight = new ConcurrentHashMap<>();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "Guilds Skull Thread " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Read the cached textures from disk, moving an unreadable file aside and starting empty since every texture can be looked up again
+     */
+    public void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            int version = in.readByte();
+            if (version != VERSION) {
+                logger.warning("Ignoring skull cache with unknown version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                textures.put(new UUID(in.readLong(), in.readLong()), in.readUTF());
+            }
+        } catch (IOException | RuntimeException e) {
+            textures.clear();
+            File corrupt = new File(file.getParentFile(), file.getName() + ".corrupt");
+            logger.warning("Could not read the skull cache, moving it to " + corrupt.getName() + " and starting empty: " + e);
+            try {
+                Files.move(file.toPath(), corrupt.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                logger.warning("Could not move the skull cache aside: " + ex);
+            }
+        }
+    }
+
+    /**
+     * Write the cached textures to disk if any were added, keeping them marked as changed if the write fails
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        // Cleared before copying so textures resolved during the write mark it dirty again, and set back if the write fails
+        dirty = false;
+        List<Map.Entry<UUID, String>> entries = new ArrayList<>(textures.entrySet());
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeByte(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<UUID, String> entry : entries) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Get the texture of a player, looking it up in the background if it isn't cached.
+     * The future completes on a skull thread, hop back to the main thread before touching Bukkit.
+     * @param uuid the uuid of the player
+     * @return the texture hash, completing exceptionally if the lookup failed
+     */
+    public CompletableFuture<String> resolve(UUID uuid) {
+        String cached = textures.get(uuid);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(uuid, future);
+        if (running != null) return running;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    String texture = source.fetchTexture(uuid);
+                    textures.put(uuid, texture);
+                    dirty = true;
+                    future.complete(texture);
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(uuid, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(uuid, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stop the lookup threads, lookups still running are abandoned
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
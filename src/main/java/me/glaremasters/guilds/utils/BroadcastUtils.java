@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Glare
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.glaremasters.guilds.utils;
+
+import co.aikar.commands.CommandIssuer;
+import co.aikar.commands.CommandManager;
+import co.aikar.commands.MessageType;
+import me.glaremasters.guilds.messages.Messages;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class BroadcastUtils {
+
+    private static final Pattern NEWLINE = Pattern.compile("\n");
+
+    /**
+     * Send an info message to a group of players. The message is looked up and formatted once for each
+     * locale among the players instead of once for every player.
+     * @param manager the command manager
+     * @param players the players to send to
+     * @param key the message to send
+     * @param replacements any args we need to handle
+     */
+    public static void broadcast(CommandManager manager, Iterable<? extends Player> players, Messages key, String... replacements) {
+        Map<Locale, List<CommandIssuer>> byLocale = new HashMap<>();
+        for (Player player : players) {
+            CommandIssuer issuer = manager.getCommandIssuer(player);
+            byLocale.computeIfAbsent(manager.getIssuerLocale(issuer), l -> new ArrayList<>()).add(issuer);
+        }
+
+        for (List<CommandIssuer> issuers : byLocale.values()) {
+            String[] lines = NEWLINE.split(manager.formatMessage(issuers.get(0), MessageType.INFO, key, replacements));
+            for (CommandIssuer issuer : issuers) {
+                for (String line : lines) {
+                    issuer.sendMessageInternal(line);
+                }
+            }
+        }
+    }
+
+}
@@ -96,7 +96,7 @@ public class RoleUtils {
      */
     public static void promote(GuildHandler guildHandler, Guild guild, OfflinePlayer player) {
         GuildMember member = guild.getMember(player.getUniqueId());
-        member.setRole(guildHandler.getGuildRole(member.getRole().getLevel() - 1));
+        guild.setMemberRole(member, guildHandler.getGuildRole(member.getRole().getLevel() - 1));
     }
 
     /**
@@ -107,7 +107,7 @@ public class RoleUtils {
      */
     public static void demote(GuildHandler guildHandler, Guild guild, OfflinePlayer player) {
         GuildMember member = guild.getMember(player.getUniqueId());
-        member.setRole(guildHandler.getGuildRole(member.getRole().getLevel() + 1));
+        guild.setMemberRole(member, guildHandler.getGuildRole(member.getRole().getLevel() + 1));
     }
 
     /**
@@ -8,9 +8,19 @@ import org.bukkit.Bukkit;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Created by GlareMasters
@@ -19,19 +29,58 @@ import java.util.Map;
  */
 public class Serialization {
 
+    // Layout of the binary format: version, flags, then (optionally gzipped) size, slot count and slot/item pairs
+    private static final byte VERSION = 1;
+    private static final byte FLAG_GZIP = 1;
+
     private Serialization() {}
 
-    public static String serializeInventory(Inventory inventory) {
-        return serializeInventory(inventory.getSize(), inventory.getContents());
+    public static String serializeInventory(Inventory inventory, SettingsManager settingsManager) {
+        return serializeInventory(inventory.getSize(), inventory.getContents(), settingsManager);
+    }
+
+    /**
+     * Serialize the inventory to a base64 binary blob holding only the occupied slots
+     * @param size size of inventory
+     * @param items the items to be serialized
+     * @param settingsManager settings manager, used to check if the blob should be compressed
+     * @return serialized inventory
+     */
+    public static String serializeInventory(int size, ItemStack[] items, SettingsManager settingsManager) {
+        boolean gzip = settingsManager.getProperty(GuildVaultSettings.VAULT_COMPRESSION);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(VERSION);
+            bytes.write(gzip ? FLAG_GZIP : 0);
+
+            OutputStream target = gzip ? new GZIPOutputStream(bytes) : bytes;
+            try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(target)) {
+                int occupied = 0;
+                for (ItemStack item : items) {
+                    if (item != null) occupied++;
+                }
+                out.writeInt(size);
+                out.writeInt(occupied);
+                for (int i = 0; i < items.length; i++) {
+                    if (items[i] == null) continue;
+                    out.writeShort(i);
+                    out.writeObject(items[i]);
+                }
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return serializeLegacyInventory(size, items);
+        }
     }
 
     /**
-     * Serialize the inventory to JSON
+     * Serialize the inventory to JSON, the format used before the binary one
      * @param size size of inventory
      * @param items the items to be serialized
      * @return serialized inventory
      */
-    public static String serializeInventory(int size, ItemStack[] items) {
+    private static String serializeLegacyInventory(int size, ItemStack[] items) {
         JsonConfiguration json = new JsonConfiguration();
         json.set("size", size);
         int idx = 0;
@@ -49,34 +98,88 @@ public class Serialization {
     }
 
     /**
-     * Deserialize the inventory from JSON
-     * @param jsons the JSON string
+     * Deserialize the inventory from either the binary or the legacy JSON format
+     * @param jsons the serialized inventory
      * @param title the name of the inventory
      * @return the deserialized string
      * @throws InvalidConfigurationException
      */
     public static Inventory deserializeInventory(String jsons, String title, SettingsManager settingsManager) throws InvalidConfigurationException {
+        title = ACFBukkitUtil.color(settingsManager.getProperty(GuildVaultSettings.VAULT_NAME));
+        // Base64 never contains a brace, so anything starting with one was written before the binary format
+        if (jsons.trim().startsWith("{")) {
+            return deserializeLegacyInventory(jsons, title);
+        }
+
+        try {
+            byte[] data = Base64.getDecoder().decode(jsons);
+            if (data.length < 2 || data[0] != VERSION) {
+                throw new InvalidConfigurationException("Unknown vault format version " + (data.length == 0 ? "none" : data[0]));
+            }
+
+            InputStream source = new ByteArrayInputStream(data, 2, data.length - 2);
+            if ((data[1] & FLAG_GZIP) != 0) source = new GZIPInputStream(source);
+            try (BukkitObjectInputStream in = new BukkitObjectInputStream(source)) {
+                Inventory inventory = Bukkit.createInventory(null, in.readInt(), title);
+                int occupied = in.readInt();
+                for (int i = 0; i < occupied; i++) {
+                    inventory.setItem(in.readShort(), (ItemStack) in.readObject());
+                }
+                return inventory;
+            }
+        } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+            throw new InvalidConfigurationException("Could not read vault", e);
+        }
+    }
+
+    /**
+     * Re-encode a vault still stored in the legacy JSON format, leaving binary vaults untouched
+     * @param serialized the serialized inventory
+     * @param settingsManager settings manager
+     * @return the vault in the binary format
+     */
+    public static String upgradeInventory(String serialized, SettingsManager settingsManager) {
+        if (!serialized.trim().startsWith("{")) return serialized;
+        ItemStack[] items = readLegacyItems(serialized);
+        return items == null ? serialized : serializeInventory(items.length, items, settingsManager);
+    }
+
+    /**
+     * Deserialize the inventory from JSON
+     * @param jsons the JSON string
+     * @param title the name of the inventory
+     * @return the deserialized inventory
+     */
+    private static Inventory deserializeLegacyInventory(String jsons, String title) {
+        ItemStack[] items = readLegacyItems(jsons);
+        if (items == null) return null;
+        Inventory inventory = Bukkit.createInventory(null, items.length, title);
+        inventory.setContents(items);
+        return inventory;
+    }
+
+    /**
+     * Read the items of a JSON serialized inventory
+     * @param jsons the JSON string
+     * @return the items by slot, or null if the JSON is invalid
+     */
+    private static ItemStack[] readLegacyItems(String jsons) {
         try {
             JsonConfiguration json = new JsonConfiguration();
             json.loadFromString(jsons);
 
-            int size = json.getInt("size", 54);
-            title = ACFBukkitUtil.color(settingsManager.getProperty(GuildVaultSettings.VAULT_NAME));
-
-            Inventory inventory = Bukkit.createInventory(null, size, title);
+            ItemStack[] contents = new ItemStack[json.getInt("size", 54)];
             Map<String, Object> items = json.getConfigurationSection("items").getValues(false);
             for (Map.Entry<String, Object> item : items.entrySet()) {
                 ItemStack itemstack = (ItemStack) item.getValue();
                 int idx = Integer.parseInt(item.getKey());
-                inventory.setItem(idx, itemstack);
+                contents[idx] = itemstack;
             }
-            return inventory;
+            return contents;
 
         } catch (InvalidConfigurationException e) {
             return null;
         }
     }
 
-
-
 }